@@ -0,0 +1,132 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A PARTICULAR 
+PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE LIABLE 
+FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR 
+OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER 
+DEALINGS IN THE SOFTWARE.
+*/
+
+import java.util.List;
+
+import org.cove.ape.AbstractParticle;
+import org.cove.ape.CircleParticle;
+import org.cove.ape.Group;
+import org.cove.ape.PhysicsWorld;
+import org.cove.ape.SpringConstraint;
+import org.cove.ape.Vector2D;
+import org.cove.ape.util.GCreator;
+import org.cove.ape.util.IGraphicsCreator;
+
+import flash.display.Graphics;
+import flash.display.Sprite;
+
+/**
+ * Times packed against unpacked stepping, and prints a checksum of the final
+ * positions of every run, so the modes can be compared for both speed and results.
+ * 
+ * <p>
+ * Compile it against the engine sources and run it with no arguments:
+ * <pre>
+ * javac -d out $(find APEEngine/src -name '*.java') APEEngine/bench/PackedBenchmark.java
+ * java -cp out PackedBenchmark
+ * </pre>
+ * Add <code>APEEngine/src-vector</code> and <code>--add-modules jdk.incubator.vector</code>
+ * to both commands to time the vector kernels.
+ * </p>
+ */
+public class PackedBenchmark {
+	
+	private static final String[] MODES = { "unpacked", "packed", "packed off heap" };
+	
+	
+	public static void main(String[] args) {
+		
+		GCreator.SetCreator(new IGraphicsCreator() {
+			public Graphics create(Sprite s) {
+				return new Graphics(s);
+			}
+		});
+		
+		// the first round warms up the JIT
+		for (int round = 0; round < 2; round++) {
+			for (int m = 0; m < MODES.length; m++) {
+				run("cloth", m, round == 1);
+				run("free particles", m, round == 1);
+			}
+		}
+	}
+	
+	
+	private static void run(String scene, int mode, boolean report) {
+		
+		PhysicsWorld w = new PhysicsWorld(0.25f);
+		w.setContainer(new Sprite());
+		w.addMasslessForce(new Vector2D(0, 1));
+		w.setConstraintCycles(4);
+		
+		Group g = (scene.equals("cloth")) ? cloth(120) : freeParticles(20000);
+		g.setOffHeap(mode == 2);
+		g.setPacked(mode > 0);
+		w.addGroup(g);
+		
+		long t = System.nanoTime();
+		for (int i = 0; i < 200; i++) w.step();
+		long ms = (System.nanoTime() - t) / 1000000;
+		
+		if (report) {
+			System.out.println(scene + ", " + MODES[mode] + ": " + ms + "ms, checksum " + 
+					checksum(g.getParticles()));
+		}
+	}
+	
+	
+	private static Group cloth(int n) {
+		Group g = new Group();
+		CircleParticle[][] grid = new CircleParticle[n][n];
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				grid[i][j] = new CircleParticle(i * 5, j * 5, 1, j == 0, 1, 0.3f, 0);
+				g.addParticle(grid[i][j]);
+			}
+		}
+		for (int i = 0; i < n; i++) {
+			for (int j = 0; j < n; j++) {
+				if (i + 1 < n) g.addConstraint(new SpringConstraint(grid[i][j], grid[i + 1][j], 0.9f, false, 1, 1, false));
+				if (j + 1 < n) g.addConstraint(new SpringConstraint(grid[i][j], grid[i][j + 1], 0.9f, false, 1, 1, false));
+			}
+		}
+		return g;
+	}
+	
+	
+	private static Group freeParticles(int n) {
+		Group g = new Group();
+		for (int i = 0; i < n; i++) {
+			g.addParticle(new CircleParticle(i % 200 * 3, i / 200 * 3, 1));
+		}
+		return g;
+	}
+	
+	
+	private static double checksum(List<AbstractParticle> ps) {
+		double s = 0;
+		for (int i = 0; i < ps.size(); i++) {
+			AbstractParticle p = ps.get(i);
+			s += (i + 1) * (p.getPx() * 1.3 + p.getPy() * 0.7);
+		}
+		return s;
+	}
+}
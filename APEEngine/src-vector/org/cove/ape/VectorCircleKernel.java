@@ -0,0 +1,96 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The CircleKernel that tests a full vector of pairs at a time with the incubating 
+ * Vector API. The circles are gathered from the batch by proxy index, and the 
+ * rejection tests of the scalar kernel become lane masks. The lane operations are the
+ * same as in the scalar kernel, so are the results.
+ */
+final class VectorCircleKernel extends CircleKernel {
+	
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+	
+	
+	void test(CircleBatch batch, int lo, int hi) {
+		
+		int[] a = batch.a;
+		int[] b = batch.b;
+		float[] px = batch.px;
+		float[] py = batch.py;
+		float[] radius = batch.radius;
+		
+		int step = FLOATS.length();
+		int upper = lo + FLOATS.loopBound(hi - lo);
+		int i = lo;
+		for (; i < upper; i += step) {
+			
+			FloatVector ax = FloatVector.fromArray(FLOATS, px, 0, a, i);
+			FloatVector ay = FloatVector.fromArray(FLOATS, py, 0, a, i);
+			FloatVector ra = FloatVector.fromArray(FLOATS, radius, 0, a, i);
+			FloatVector bx = FloatVector.fromArray(FLOATS, px, 0, b, i);
+			FloatVector by = FloatVector.fromArray(FLOATS, py, 0, b, i);
+			FloatVector rb = FloatVector.fromArray(FLOATS, radius, 0, b, i);
+			
+			VectorMask<Float> hit = overlaps(ax, ra, bx, rb).and(overlaps(ay, ra, by, rb));
+			
+			FloatVector dx = ax.sub(bx);
+			FloatVector dy = ay.sub(by);
+			FloatVector mag = dx.mul(dx).add(dy.mul(dy)).sqrt();
+			FloatVector d = ra.add(rb).sub(mag);
+			hit = hit.and(d.compare(VectorOperators.GT, 0));
+			
+			mag = mag.blend(0.0001f, mag.abs().compare(VectorOperators.LT, 0.0001f));
+			dx.div(mag).intoArray(batch.nx, i);
+			dy.div(mag).intoArray(batch.ny, i);
+			FloatVector.zero(FLOATS).blend(d, hit).intoArray(batch.depth, i);
+		}
+		ScalarCircleKernel.testRange(batch, i, hi);
+	}
+	
+	
+	/**
+	 * The interval test of the scalar kernel along one axis, for every lane.
+	 */
+	private static VectorMask<Float> overlaps(FloatVector ca, FloatVector ra, 
+			FloatVector cb, FloatVector rb) {
+		
+		FloatVector minA = ca.sub(ra);
+		FloatVector maxA = ca.add(ra);
+		FloatVector minB = cb.sub(rb);
+		FloatVector maxB = cb.add(rb);
+		
+		FloatVector lenA = maxB.sub(minA);
+		FloatVector lenB = minB.sub(maxA);
+		FloatVector d = lenB.blend(lenA, lenA.abs().compare(VectorOperators.LT, lenB.abs()));
+		
+		return maxA.compare(VectorOperators.GE, minB)
+				.and(maxB.compare(VectorOperators.GE, minA))
+				.and(d.abs().compare(VectorOperators.GE, 0.0001f));
+	}
+}
@@ -0,0 +1,178 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The IntegrateKernel that integrates a full vector of slots at a time with the
+ * incubating Vector API. Custom slots are masked out of every store, and fixed 
+ * ones out of all but the last position. The lane operations are the same as in 
+ * the scalar kernel, so are the results.
+ */
+final class VectorIntegrateKernel extends IntegrateKernel {
+	
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Integer> INTS = 
+			VectorSpecies.of(int.class, FLOATS.vectorShape());
+	private static final FloatVector ZERO = FloatVector.zero(FLOATS);
+	
+	
+	void integrate(HeapParticleStore s, int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2) {
+		int i = integrateArrays(s, lo, hi, gx, gy, mx, my, damping, dt2);
+		ScalarIntegrateKernel.integrateArrays(s, i, hi, gx, gy, mx, my, damping, dt2);
+	}
+	
+	
+	void integrate(DirectParticleStore s, int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2) {
+		int i = integrateBuffers(s, lo, hi, gx, gy, mx, my, damping, dt2);
+		ScalarIntegrateKernel.integrateBuffers(s, i, hi, gx, gy, mx, my, damping, dt2);
+	}
+	
+	
+	/**
+	 * Integrates the full vectors of a heap store and returns the first slot left.
+	 */
+	private static int integrateArrays(HeapParticleStore s, int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2) {
+		
+		float[] px = s.getArray(ParticleStore.PX);
+		float[] py = s.getArray(ParticleStore.PY);
+		float[] ox = s.getArray(ParticleStore.OX);
+		float[] oy = s.getArray(ParticleStore.OY);
+		float[] fx = s.getArray(ParticleStore.FX);
+		float[] fy = s.getArray(ParticleStore.FY);
+		float[] lx = s.getArray(ParticleStore.LX);
+		float[] ly = s.getArray(ParticleStore.LY);
+		float[] invMass = s.getArray(ParticleStore.INV_MASS);
+		int[] flags = s.getFlags();
+		
+		int step = FLOATS.length();
+		int upper = lo + FLOATS.loopBound(hi - lo);
+		int i = lo;
+		for (; i < upper; i += step) {
+			
+			IntVector f = IntVector.fromArray(INTS, flags, i);
+			VectorMask<Float> plain = f.and(ParticleStore.CUSTOM)
+					.compare(VectorOperators.EQ, 0)
+					.cast(FLOATS);
+			if (! plain.anyTrue()) continue;
+			
+			FloatVector x = FloatVector.fromArray(FLOATS, px, i);
+			FloatVector y = FloatVector.fromArray(FLOATS, py, i);
+			x.intoArray(lx, i, plain);
+			y.intoArray(ly, i, plain);
+			
+			VectorMask<Float> move = f.and(ParticleStore.FIXED | ParticleStore.CUSTOM)
+					.compare(VectorOperators.EQ, 0)
+					.cast(FLOATS);
+			if (! move.anyTrue()) continue;
+			
+			FloatVector im = FloatVector.fromArray(FLOATS, invMass, i);
+			FloatVector ax = FloatVector.fromArray(FLOATS, fx, i)
+					.add(im.mul(gx)).add(mx).mul(dt2);
+			FloatVector ay = FloatVector.fromArray(FLOATS, fy, i)
+					.add(im.mul(gy)).add(my).mul(dt2);
+			
+			FloatVector ex = FloatVector.fromArray(FLOATS, ox, i);
+			FloatVector ey = FloatVector.fromArray(FLOATS, oy, i);
+			
+			x.add(x.sub(ex).add(ax).mul(damping)).intoArray(px, i, move);
+			y.add(y.sub(ey).add(ay).mul(damping)).intoArray(py, i, move);
+			x.intoArray(ox, i, move);
+			y.intoArray(oy, i, move);
+			ZERO.intoArray(fx, i, move);
+			ZERO.intoArray(fy, i, move);
+		}
+		return i;
+	}
+	
+	
+	/**
+	 * Integrates the full vectors of an off heap store and returns the first slot 
+	 * left.
+	 */
+	private static int integrateBuffers(DirectParticleStore s, int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2) {
+		
+		ByteBuffer px = s.getBuffer(ParticleStore.PX);
+		ByteBuffer py = s.getBuffer(ParticleStore.PY);
+		ByteBuffer ox = s.getBuffer(ParticleStore.OX);
+		ByteBuffer oy = s.getBuffer(ParticleStore.OY);
+		ByteBuffer fx = s.getBuffer(ParticleStore.FX);
+		ByteBuffer fy = s.getBuffer(ParticleStore.FY);
+		ByteBuffer lx = s.getBuffer(ParticleStore.LX);
+		ByteBuffer ly = s.getBuffer(ParticleStore.LY);
+		ByteBuffer invMass = s.getBuffer(ParticleStore.INV_MASS);
+		ByteBuffer flags = s.getBuffer(ParticleStore.FLAGS);
+		ByteOrder bo = ByteOrder.nativeOrder();
+		
+		int step = FLOATS.length();
+		int upper = lo + FLOATS.loopBound(hi - lo);
+		int i = lo;
+		for (; i < upper; i += step) {
+			int o = i * 4;
+			
+			IntVector f = IntVector.fromByteBuffer(INTS, flags, o, bo);
+			VectorMask<Float> plain = f.and(ParticleStore.CUSTOM)
+					.compare(VectorOperators.EQ, 0)
+					.cast(FLOATS);
+			if (! plain.anyTrue()) continue;
+			
+			FloatVector x = FloatVector.fromByteBuffer(FLOATS, px, o, bo);
+			FloatVector y = FloatVector.fromByteBuffer(FLOATS, py, o, bo);
+			x.intoByteBuffer(lx, o, bo, plain);
+			y.intoByteBuffer(ly, o, bo, plain);
+			
+			VectorMask<Float> move = f.and(ParticleStore.FIXED | ParticleStore.CUSTOM)
+					.compare(VectorOperators.EQ, 0)
+					.cast(FLOATS);
+			if (! move.anyTrue()) continue;
+			
+			FloatVector im = FloatVector.fromByteBuffer(FLOATS, invMass, o, bo);
+			FloatVector ax = FloatVector.fromByteBuffer(FLOATS, fx, o, bo)
+					.add(im.mul(gx)).add(mx).mul(dt2);
+			FloatVector ay = FloatVector.fromByteBuffer(FLOATS, fy, o, bo)
+					.add(im.mul(gy)).add(my).mul(dt2);
+			
+			FloatVector ex = FloatVector.fromByteBuffer(FLOATS, ox, o, bo);
+			FloatVector ey = FloatVector.fromByteBuffer(FLOATS, oy, o, bo);
+			
+			x.add(x.sub(ex).add(ax).mul(damping)).intoByteBuffer(px, o, bo, move);
+			y.add(y.sub(ey).add(ay).mul(damping)).intoByteBuffer(py, o, bo, move);
+			x.intoByteBuffer(ox, o, bo, move);
+			y.intoByteBuffer(oy, o, bo, move);
+			ZERO.intoByteBuffer(fx, o, bo, move);
+			ZERO.intoByteBuffer(fy, o, bo, move);
+		}
+		return i;
+	}
+}
@@ -0,0 +1,81 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The SpringKernel that resolves a full vector of springs at a time with the 
+ * incubating Vector API. The ends are gathered from and scattered to the position 
+ * arrays by slot, which is safe because the springs of a batch share no slot. 
+ * Springs between two fixed particles are masked out of the stores. The lane 
+ * operations are the same as in the scalar kernel, so are the results.
+ */
+final class VectorSpringKernel extends SpringKernel {
+	
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+	
+	
+	void solve(SpringBatches sb, int lo, int hi) {
+		
+		ConstraintStore s = sb.springs;
+		int[] a = s.a;
+		int[] b = s.b;
+		float[] px = sb.px;
+		float[] py = sb.py;
+		float[] invMass = sb.invMass;
+		
+		int step = FLOATS.length();
+		int upper = lo + FLOATS.loopBound(hi - lo);
+		int i = lo;
+		for (; i < upper; i += step) {
+			
+			FloatVector im1 = FloatVector.fromArray(FLOATS, invMass, 0, a, i);
+			FloatVector im2 = FloatVector.fromArray(FLOATS, invMass, 0, b, i);
+			FloatVector ims = im1.add(im2);
+			VectorMask<Float> move = ims.compare(VectorOperators.NE, 0);
+			if (! move.anyTrue()) continue;
+			
+			FloatVector x1 = FloatVector.fromArray(FLOATS, px, 0, a, i);
+			FloatVector y1 = FloatVector.fromArray(FLOATS, py, 0, a, i);
+			FloatVector x2 = FloatVector.fromArray(FLOATS, px, 0, b, i);
+			FloatVector y2 = FloatVector.fromArray(FLOATS, py, 0, b, i);
+			
+			FloatVector dx = x1.sub(x2);
+			FloatVector dy = y1.sub(y2);
+			FloatVector len = dx.mul(dx).add(dy.mul(dy)).sqrt();
+			FloatVector diff = len.sub(FloatVector.fromArray(FLOATS, s.rest, i)).div(len.mul(ims));
+			FloatVector k = diff.mul(FloatVector.fromArray(FLOATS, s.stiffness, i));
+			FloatVector mx = dx.mul(k);
+			FloatVector my = dy.mul(k);
+			
+			x1.sub(mx.mul(im1)).intoArray(px, 0, a, i, move);
+			y1.sub(my.mul(im1)).intoArray(py, 0, a, i, move);
+			x2.add(mx.mul(im2)).intoArray(px, 0, b, i, move);
+			y2.add(my.mul(im2)).intoArray(py, 0, b, i, move);
+		}
+		ScalarSpringKernel.solveRange(sb, i, hi);
+	}
+}
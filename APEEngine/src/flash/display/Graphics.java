@@ -1,52 +1,52 @@
-package flash.display;
-
-public class Graphics {
-	
-	protected Sprite sprite;
-	
-	public Graphics(Sprite sprite)
-	{
-		this.sprite = sprite;
-	}
-	
-	public void clear()
-	{
-		
-	}
-	
-	public void lineStyle(float lineThickness, long lineColor, float lineAlpha)
-	{
-		
-	}
-	
-	public void beginFill(long fillColor, float fillAlpha)
-	{
-		
-	}
-	
-	
-	public void drawCircle(float x, float y, float radius)
-	{
-		
-	}
-	
-	public void drawRect(float x, float y, float w, float h)
-	{
-		
-	}
-	
-	public void moveTo(float x, float y)
-	{
-		
-	}
-	
-	public void lineTo(float x, float y)
-	{
-		
-	}
-	
-	public void endFill()
-	{
-		
-	}
-}
+package flash.display;
+
+public class Graphics {
+	
+	protected Sprite sprite;
+	
+	public Graphics(Sprite sprite)
+	{
+		this.sprite = sprite;
+	}
+	
+	public void clear()
+	{
+		
+	}
+	
+	public void lineStyle(float lineThickness, long lineColor, float lineAlpha)
+	{
+		
+	}
+	
+	public void beginFill(long fillColor, float fillAlpha)
+	{
+		
+	}
+	
+	
+	public void drawCircle(float x, float y, float radius)
+	{
+		
+	}
+	
+	public void drawRect(float x, float y, float w, float h)
+	{
+		
+	}
+	
+	public void moveTo(float x, float y)
+	{
+		
+	}
+	
+	public void lineTo(float x, float y)
+	{
+		
+	}
+	
+	public void endFill()
+	{
+		
+	}
+}
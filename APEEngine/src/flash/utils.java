@@ -1,9 +1,9 @@
-package flash;
-
-public class utils {
-	
-	public static String getQualifiedClassName(Object obj)
-	{
-		return obj.getClass().toString();
-	}
-}
+package flash;
+
+public class utils {
+	
+	public static String getQualifiedClassName(Object obj)
+	{
+		return obj.getClass().toString();
+	}
+}
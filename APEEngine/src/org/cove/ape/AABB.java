@@ -0,0 +1,91 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+
+/**
+ * An axis aligned bounding box.
+ */
+final class AABB {
+	
+	float minX;
+	float minY;
+	float maxX;
+	float maxY;
+	
+	
+	public AABB() {
+		minX = minY = maxX = maxY = 0;
+	}
+	
+	
+	boolean overlaps(AABB b) {
+		return minX <= b.maxX && b.minX <= maxX && minY <= b.maxY && b.minY <= maxY;
+	}
+	
+	
+	/**
+	 * Makes this box empty, so it overlaps nothing until other boxes are added to it.
+	 */
+	void setEmpty() {
+		minX = minY = Float.MAX_VALUE;
+		maxX = maxY = -Float.MAX_VALUE;
+	}
+	
+	
+	/**
+	 * Makes this box infinite, so it overlaps every box. Used while the real box is
+	 * not known.
+	 */
+	void setInfinite() {
+		minX = minY = Float.NEGATIVE_INFINITY;
+		maxX = maxY = Float.POSITIVE_INFINITY;
+	}
+	
+	
+	/**
+	 * Grows this box to also cover b.
+	 */
+	void add(AABB b) {
+		if (b.minX < minX) minX = b.minX;
+		if (b.minY < minY) minY = b.minY;
+		if (b.maxX > maxX) maxX = b.maxX;
+		if (b.maxY > maxY) maxY = b.maxY;
+	}
+	
+	
+	/**
+	 * Grows this box by d on every side. An empty box stays empty.
+	 */
+	void expand(float d) {
+		if (minX > maxX) return;
+		minX -= d;
+		minY -= d;
+		maxX += d;
+		maxY += d;
+	}
+	
+	
+	public String toString() {
+		return (minX + " : " + minY + " - " + maxX + " : " + maxY);
+	}
+}
@@ -1,346 +1,1149 @@
-/*
-Copyright (c) 2006, 2007 Alec Cove
-
-Permission is hereby granted, free of charge, to any person obtaining a copy of this 
-software and associated documentation files (the "Software"), to deal in the Software 
-without restriction, including without limitation the rights to use, copy, modify, 
-merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
-permit persons to whom the Software is furnished to do so, subject to the following 
-conditions:
-
-The above copyright notice and this permission notice shall be included in all copies 
-or substantial portions of the Software.
-
-THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
-INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
-PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
-HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
-CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
-OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
-*/
-
-/*
-	TODO:
-	- get sprite() is duplicated in AbstractItem. Should be in some parent class.
-	- checkCollisionsVsCollection and checkInternalCollisions methods use SpringConstraint. 
-      it should be AbstractConstraint but the isConnectedTo method is in SpringConstraint.
-    - same deal with the paint() method here -- needs to test connected particles state 
-      using SpringConstraint methods but should really be AbstractConstraint. need to clear up
-      what an AbstractConstraint really means.
-    - would an explicit cast be more efficient in the paint() method here?
-*/
-
-package org.cove.ape;
-
-	
-import flash.display.Sprite;
-
-import java.util.ArrayList;
-import java.util.List;
-
-import org.cove.ape.util.ArgumentError;
-
-import flash.utils;
-
-
-/**
- * The abstract base class for all grouping classes. 
- * 
- * <p>
- * You should not instantiate this class directly -- instead use one of the subclasses.
- * </p>
- */	
-public class AbstractCollection {
-	
-
-	private Sprite _sprite;
-	private List<AbstractParticle> _particles;
-	private List<AbstractConstraint> _constraints;
-	private boolean _isParented;
-	
-	
-	public AbstractCollection() {	
-		if (utils.getQualifiedClassName(this) == "org.cove.ape.AbstractCollection") {
-			throw new ArgumentError("AbstractCollection can't be instantiated directly");
-		}
-		_isParented = false;
-		_particles = new ArrayList<AbstractParticle>();
-		_constraints = new ArrayList<AbstractConstraint>();
-	}
-	
-	
-	/**
-	 * The Array of all AbstractParticle instances added to the AbstractCollection
-	 */
-	public List<AbstractParticle> getParticles() {
-		return _particles;
-	}
-	
-	
-	/**
-	 * The Array of all AbstractConstraint instances added to the AbstractCollection
-	 */	
-	public List<AbstractConstraint> getConstraints() {
-		return _constraints;	
-	}
-
-	
-	/**
-	 * Adds an AbstractParticle to the AbstractCollection.
-	 * 
-	 * @param p The particle to be added.
-	 */
-	public void addParticle(AbstractParticle p) {		
-		_particles.add(p);
-		if (_isParented) p.init();
-	}
-	
-	
-	/**
-	 * Removes an AbstractParticle from the AbstractCollection.
-	 * 
-	 * @param p The particle to be removed.
-	 */
-	public void removeParticle(AbstractParticle p) {
-		
-		boolean _hasSuch = _particles.remove(p);
-		if ( _hasSuch )
-			p.cleanup();		
-	}
-	
-	
-	/**
-	 * Adds a constraint to the Collection.
-	 * 
-	 * @param c The constraint to be added.
-	 */
-	public void addConstraint(AbstractConstraint c) {		
-		_constraints.add(c);		
-		if (_isParented) c.init();
-	}
-
-
-	/**
-	 * Removes a constraint from the Collection.
-	 * 
-	 * @param c The constraint to be removed.
-	 */
-	public void removeConstraint(AbstractConstraint c) {
-		
-		boolean _hasSuch = _constraints.remove(c);
-		if ( _hasSuch )
-			c.cleanup();		
-	}
-	
-	
-	/**
-	 * Initializes every member of this AbstractCollection by in turn calling 
-	 * each members <code>init()</code> method.
-	 */
-	public void init() {
-		
-		for (int i = 0; i < _particles.size(); i++) {
-			_particles.get(i).init();	
-		}
-		
-		for (int i = 0; i < _constraints.size(); i++) {
-			_constraints.get(i).init();
-		}
-	}
-	
-			
-	/**
-	 * paints every member of this AbstractCollection by calling each members
-	 * <code>paint()</code> method.
-	 */
-	public void paint() {
-		
-		AbstractParticle p;
-		int len = _particles.size();
-		for (int i = 0; i < len; i++) {
-			p = _particles.get(i);
-			// TODO
-			//if ((! p.getFixed()) || p.getAlwaysRepaint()) 
-			//	p.paint();
-			p.paint();
-		}
-		
-		SpringConstraint c;
-		len = _constraints.size();
-		for (int i = 0; i < len; i++) {
-			c = (SpringConstraint)_constraints.get(i);
-			// TODO
-			//if ((! c.getFixed()) || c.getAlwaysRepaint()) 
-			//	c.paint();
-			c.paint();
-		}
-	}
-	
-	
-	/**
-	 * Calls the <code>cleanup()</code> method of every member of this AbstractCollection.
-	 * The cleanup() method is called automatically when an AbstractCollection is removed
-	 * from its parent.
-	 */
-	public void cleanup() {
-		
-		for (int i = 0; i < _particles.size(); i++) {
-			_particles.get(i).cleanup();	
-		}
-		for (int i = 0; i < _constraints.size(); i++) {
-			_constraints.get(i).cleanup();
-		}
-	}
-			
-	
-	/**
-	 * Provides a Sprite to use as a container for drawing or adding children. When the
-	 * sprite is requested for the first time it is automatically added to the global
-	 * container in the APEngine class.
-	 */	
-	public Sprite getSprite() {
-		
-		if (_sprite != null) return _sprite;
-		
-		if (APEngine.getContainer() == null) {
-			throw new Error("The container property of the APEngine class has not been set");
-		}
-		
-		_sprite = new Sprite();
-		APEngine.getContainer().addChild(_sprite);
-		return _sprite;
-	}
-	
-
-	/**
-	 * Returns an array of every particle and constraint added to the AbstractCollection.
-	 */
-	public ArrayList getAll() {		
-		ArrayList list = new ArrayList();		
-		list.addAll(_particles);
-		list.addAll(_constraints);		
-		return list;
-	}	
-	
-	
-	/**
-	 * @private
-	 */
-	boolean getIsParented() {
-		return _isParented;
-	}	
-
-
-	/**
-	 * @private
-	 */		
-	void setIsParented(boolean b) {
-		_isParented = b;
-	}	
-	
-							
-	/**
-	 * @private
-	 */
-	void integrate(float dt2) {
-		int len = _particles.size();
-		for (int i = 0; i < len; i++) {
-			AbstractParticle p = _particles.get(i);;
-			p.update(dt2);	
-		}
-	}		
-	
-		
-	/**
-	 * @private
-	 */
-	void satisfyConstraints() {
-		int len = _constraints.size();
-		for (int i = 0; i < len; i++) {
-			AbstractConstraint c = _constraints.get(i);
-			c.resolve();	
-		}
-	}			
-	
-
-	/**
-	 * @private
-	 */	
-	void checkInternalCollisions() {
-	 
-		// every particle in this AbstractCollection
-		int plen = _particles.size();
-		for (int j = 0; j < plen; j++) {
-			
-			AbstractParticle pa = _particles.get(j);
-			if (! pa.getCollidable()) continue;
-			
-			// ...vs every other particle in this AbstractCollection
-			for (int i = j + 1; i < plen; i++) {
-				AbstractParticle pb = _particles.get(i);
-				if (pb.getCollidable()) CollisionDetector.test(pa, pb);
-			}
-			
-			// ...vs every other constraint in this AbstractCollection
-			int clen = _constraints.size();
-			for (int n = 0; n < clen; n++) {
-				SpringConstraint c = (SpringConstraint)_constraints.get(n);
-				if (c.getCollidable() && ! c.isConnectedTo(pa)) {
-					c.getScp().updatePosition();
-					CollisionDetector.test(pa, c.getScp());
-				}
-			}
-		}
-	}
-
-
-	/**
-	 * @private
-	 */	
-	void checkCollisionsVsCollection(AbstractCollection ac) {
-		
-		// every particle in this collection...
-		int plen = _particles.size();
-		for (int j = 0; j < plen; j++) {
-			
-			AbstractParticle pga = _particles.get(j);
-			if (! pga.getCollidable()) continue;
-			
-			// ...vs every particle in the other collection
-			int acplen = ac.getParticles().size();
-			for (int x = 0; x < acplen; x++) {
-				AbstractParticle pgb = ac.getParticles().get(x);
-				if (pgb.getCollidable()) CollisionDetector.test(pga, pgb);
-			}
-			// ...vs every constraint in the other collection
-			int acclen = ac.getConstraints().size();
-			for (int x = 0; x < acclen; x++) {
-				SpringConstraint cgb = (SpringConstraint)ac.getConstraints().get(x);
-				if (cgb.getCollidable() && ! cgb.isConnectedTo(pga)) {
-					cgb.getScp().updatePosition();
-					CollisionDetector.test(pga, cgb.getScp());
-				}
-			}
-		}
-		
-		// every constraint in this collection...
-		int clen = _constraints.size();
-		for (int j = 0; j < clen; j++) {
-			SpringConstraint cga = (SpringConstraint)_constraints.get(j);
-			if (! cga.getCollidable()) continue;
-			
-			// ...vs every particle in the other collection
-			int acplen = ac.getParticles().size();
-			for (int n = 0; n < acplen; n++) {
-				AbstractParticle pgb = ac.getParticles().get(n);
-				if (pgb.getCollidable() && ! cga.isConnectedTo(pgb)) {
-					cga.getScp().updatePosition();
-					CollisionDetector.test(pgb, cga.getScp());
-				}
-			}
-		}
-	}			
-}
-
-
-
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+/*
+	TODO:
+	- get sprite() is duplicated in AbstractItem. Should be in some parent class.
+	- checkCollisionsVsCollection and checkInternalCollisions methods use SpringConstraint. 
+      it should be AbstractConstraint but the isConnectedTo method is in SpringConstraint.
+    - same deal with the paint() method here -- needs to test connected particles state 
+      using SpringConstraint methods but should really be AbstractConstraint. need to clear up
+      what an AbstractConstraint really means.
+    - would an explicit cast be more efficient in the paint() method here?
+*/
+
+package org.cove.ape;
+
+	
+import flash.display.Sprite;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cove.ape.util.ArgumentError;
+
+import flash.utils;
+
+
+/**
+ * The abstract base class for all grouping classes. 
+ * 
+ * <p>
+ * You should not instantiate this class directly -- instead use one of the subclasses.
+ * </p>
+ */	
+public class AbstractCollection extends Slotted {
+	
+
+	private Sprite _sprite;
+	private SlotList<AbstractParticle> _particles;
+	private SlotList<AbstractConstraint> _constraints;
+	private List<SpringConstraint> _collidableConstraints;
+	private boolean _collidableDirty;
+	private boolean _isParented;
+	private PhysicsWorld _world;
+	
+	private boolean _parallel;
+	private int _chunkSize;
+	private AbstractConstraint[][] _constraintBatches;
+	
+	private boolean _staticIndexing;
+	private boolean _staticDirty;
+	private boolean _dynamicDirty;
+	private StaticIndex _staticIndex;
+	private List<AbstractParticle> _dynamicParticles;
+	
+	private AABB _bounds;
+	private AABB _memberBounds;
+	
+	private ParticleStore _store;
+	private SpringBatches _springBatches;
+	private boolean _offHeap;
+	
+	private int _slot;
+	private long _handle;
+	
+	
+	public AbstractCollection() {	
+		if (utils.getQualifiedClassName(this) == "org.cove.ape.AbstractCollection") {
+			throw new ArgumentError("AbstractCollection can't be instantiated directly");
+		}
+		_isParented = false;
+		_particles = new SlotList<AbstractParticle>();
+		_constraints = new SlotList<AbstractConstraint>();
+		_collidableConstraints = new ArrayList<SpringConstraint>();
+		_parallel = false;
+		_chunkSize = 1024;
+		_staticIndexing = false;
+		_bounds = new AABB();
+		_memberBounds = new AABB();
+		_bounds.setInfinite();
+		_slot = -1;
+		_handle = SlotList.NO_HANDLE;
+	}
+	
+	
+	/**
+	 * The Array of all AbstractParticle instances added to the AbstractCollection. 
+	 * Removing a particle moves the last particle into its place, so the order 
+	 * changes as particles are removed.
+	 */
+	public List<AbstractParticle> getParticles() {
+		return _particles;
+	}
+	
+	
+	/**
+	 * The Array of all AbstractConstraint instances added to the AbstractCollection.
+	 * As with the particles, removal changes the order.
+	 */	
+	public List<AbstractConstraint> getConstraints() {
+		return _constraints;	
+	}
+	
+	
+	/**
+	 * Returns the particle with the passed handle, or null if it has been removed
+	 * from this collection.
+	 * 
+	 * @param handle The value of the <code>handle</code> property of the particle.
+	 */
+	public AbstractParticle getParticle(long handle) {
+		return _particles.get(handle);
+	}
+	
+	
+	/**
+	 * Returns the constraint with the passed handle, or null if it has been removed
+	 * from this collection.
+	 * 
+	 * @param handle The value of the <code>handle</code> property of the constraint.
+	 */
+	public AbstractConstraint getConstraint(long handle) {
+		return _constraints.get(handle);
+	}
+
+	
+	/**
+	 * Adds an AbstractParticle to the AbstractCollection.
+	 * 
+	 * @param p The particle to be added.
+	 */
+	public void addParticle(AbstractParticle p) {		
+		_particles.add(p);
+		p.setWorld(_world);
+		p.setOwner(this);
+		if (_world != null) _world.particleAdded(p);
+		particleAppended(p);
+		invalidateBounds();
+		if (_isParented) p.init();
+	}
+	
+	
+	/**
+	 * Adds a list of AbstractParticles to the AbstractCollection. The particles are
+	 * all appended first, and if the collection is already part of a world they are
+	 * then initialized in a single pass. That pass creates sprites and draws them, 
+	 * so it always runs on the calling thread, whatever <code>parallel</code> is.
+	 * 
+	 * @param ps The particles to be added.
+	 */
+	public void addParticleList(List<? extends AbstractParticle> ps) {
+		int len = ps.size();
+		for (int i = 0; i < len; i++) {
+			AbstractParticle p = ps.get(i);
+			_particles.add(p);
+			p.setWorld(_world);
+			p.setOwner(this);
+			if (_world != null) _world.particleAdded(p);
+			particleAppended(p);
+		}
+		invalidateBounds();
+		if (_isParented) initItems(ps);
+	}
+	
+	
+	/**
+	 * Removes an AbstractParticle from the AbstractCollection.
+	 * 
+	 * @param p The particle to be removed.
+	 */
+	public void removeParticle(AbstractParticle p) {
+		detachParticle(p);
+	}
+	
+	
+	/**
+	 * Removes a list of AbstractParticles from the AbstractCollection. Each removal
+	 * takes constant time.
+	 * 
+	 * @param ps The particles to be removed.
+	 */
+	public void removeParticleList(List<? extends AbstractParticle> ps) {
+		int len = ps.size();
+		for (int i = 0; i < len; i++) {
+			detachParticle(ps.get(i));
+		}
+	}
+	
+	
+	/**
+	 * Adds a constraint to the Collection.
+	 * 
+	 * @param c The constraint to be added.
+	 */
+	public void addConstraint(AbstractConstraint c) {		
+		_constraints.add(c);
+		c.setWorld(_world);
+		c.setOwner(this);
+		if (_world != null) _world.constraintChanged(this, c);
+		invalidateConstraintBatches();
+		invalidateCollidableConstraints();
+		invalidateBounds();
+		if (_isParented) c.init();
+	}
+	
+	
+	/**
+	 * Adds a list of constraints to the Collection. As with 
+	 * <code>addParticleList()</code>, the constraints are all appended first and 
+	 * then initialized in a single pass on the calling thread.
+	 * 
+	 * @param cs The constraints to be added.
+	 */
+	public void addConstraintList(List<? extends AbstractConstraint> cs) {
+		int len = cs.size();
+		for (int i = 0; i < len; i++) {
+			AbstractConstraint c = cs.get(i);
+			_constraints.add(c);
+			c.setWorld(_world);
+			c.setOwner(this);
+			if (_world != null) _world.constraintChanged(this, c);
+		}
+		invalidateConstraintBatches();
+		invalidateCollidableConstraints();
+		invalidateBounds();
+		if (_isParented) initItems(cs);
+	}
+
+
+	/**
+	 * Removes a constraint from the Collection.
+	 * 
+	 * @param c The constraint to be removed.
+	 */
+	public void removeConstraint(AbstractConstraint c) {
+		if (detachConstraint(c)) constraintsRemoved();
+	}
+	
+	
+	/**
+	 * Removes a list of constraints from the Collection. Each removal takes constant 
+	 * time, and the collection is updated once for the whole list.
+	 * 
+	 * @param cs The constraints to be removed.
+	 */
+	public void removeConstraintList(List<? extends AbstractConstraint> cs) {
+		boolean removed = false;
+		int len = cs.size();
+		for (int i = 0; i < len; i++) {
+			if (detachConstraint(cs.get(i))) removed = true;
+		}
+		if (removed) constraintsRemoved();
+	}
+	
+	
+	/**
+	 * Initializes every member of this AbstractCollection by in turn calling 
+	 * each members <code>init()</code> method.
+	 */
+	public void init() {
+		
+		for (int i = 0; i < _particles.size(); i++) {
+			_particles.get(i).init();	
+		}
+		
+		for (int i = 0; i < _constraints.size(); i++) {
+			_constraints.get(i).init();
+		}
+	}
+	
+			
+	/**
+	 * paints every member of this AbstractCollection by calling each members
+	 * <code>paint()</code> method.
+	 */
+	public void paint() {
+		
+		AbstractParticle p;
+		int len = _particles.size();
+		for (int i = 0; i < len; i++) {
+			p = _particles.get(i);
+			// TODO
+			//if ((! p.getFixed()) || p.getAlwaysRepaint()) 
+			//	p.paint();
+			p.paint();
+		}
+		
+		SpringConstraint c;
+		len = _constraints.size();
+		for (int i = 0; i < len; i++) {
+			c = (SpringConstraint)_constraints.get(i);
+			// TODO
+			//if ((! c.getFixed()) || c.getAlwaysRepaint()) 
+			//	c.paint();
+			c.paint();
+		}
+	}
+	
+	
+	/**
+	 * Calls the <code>cleanup()</code> method of every member of this AbstractCollection.
+	 * The cleanup() method is called automatically when an AbstractCollection is removed
+	 * from its parent.
+	 */
+	public void cleanup() {
+		
+		for (int i = 0; i < _particles.size(); i++) {
+			_particles.get(i).cleanup();	
+		}
+		for (int i = 0; i < _constraints.size(); i++) {
+			_constraints.get(i).cleanup();
+		}
+	}
+			
+	
+	/**
+	 * Provides a Sprite to use as a container for drawing or adding children. When the
+	 * sprite is requested for the first time it is automatically added to the 
+	 * container of the collection's PhysicsWorld.
+	 */	
+	public Sprite getSprite() {
+		
+		if (_sprite != null) return _sprite;
+		
+		PhysicsWorld w = getWorld();
+		if (w == null || w.getContainer() == null) {
+			throw new Error("The container property of the PhysicsWorld has not been set");
+		}
+		
+		_sprite = new Sprite();
+		w.getContainer().addChild(_sprite);
+		return _sprite;
+	}
+	
+
+	/**
+	 * Returns an array of every particle and constraint added to the AbstractCollection.
+	 */
+	public ArrayList getAll() {		
+		ArrayList list = new ArrayList();		
+		list.addAll(_particles);
+		list.addAll(_constraints);		
+		return list;
+	}	
+	
+	
+	/**
+	 * Determines if large collections are integrated and constrained in parallel.
+	 * When this is true and the collection holds more than <code>chunkSize</code> 
+	 * particles, they are split into chunks that are integrated concurrently on the
+	 * ForkJoinPool of the world. Constraints are grouped into batches that share no 
+	 * particle, and the members of each batch are resolved concurrently. Batches are
+	 * still resolved one after the other, but in a different order than the serial
+	 * loop, so results differ slightly from a serial step. The default is false.
+	 */
+	public boolean getParallel() {
+		return _parallel;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setParallel(boolean b) {
+		_parallel = b;
+	}
+	
+	
+	/**
+	 * The number of particles or constraints handled by a single task when 
+	 * <code>parallel</code> is true. Smaller collections are stepped serially. 
+	 * The default is 1024.
+	 */
+	public int getChunkSize() {
+		return _chunkSize;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setChunkSize(int n) {
+		if (n < 1) throw new ArgumentError("chunkSize must be at least 1");
+		_chunkSize = n;
+	}
+	
+	
+	/**
+	 * Determines if the particles of this collection are kept in packed columns. 
+	 * When true, the positions, previous positions and forces of the particles live 
+	 * in parallel arrays, which the particles read and write in place of their own 
+	 * fields, and every step a kernel integrates them over the arrays. Particles of 
+	 * classes that override <code>update()</code> are still integrated by calling it.
+	 * SpringConstraints between particles of the collection are resolved over the 
+	 * arrays too, in batches that share no particle, so as with <code>parallel</code>
+	 * the results differ slightly from the serial constraint loop. The default is 
+	 * false.
+	 */
+	public boolean getPacked() {
+		return _store != null;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setPacked(boolean b) {
+		if (b == (_store != null)) return;
+		if (b) {
+			_store = ParticleStore.create(_offHeap);
+			_springBatches = new SpringBatches();
+		} else {
+			_store.clear();
+			_store = null;
+			_springBatches.invalidate();
+			_springBatches = null;
+		}
+	}
+	
+	
+	/**
+	 * Determines if the packed storage of this collection is allocated outside the 
+	 * Java heap, as direct buffers in native memory. Off heap storage is never scanned
+	 * or moved by the garbage collector, which keeps collection pauses short for very
+	 * large collections. The buffers are dropped when the collection is removed from
+	 * its world or Group, and the native memory is reclaimed once they are garbage
+	 * collected. Only the particle columns move off the heap; the spring batches and
+	 * their ConstraintStore stay on it. Only used when <code>packed</code> is true. 
+	 * The default is false.
+	 */
+	public boolean getOffHeap() {
+		return _offHeap;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setOffHeap(boolean b) {
+		if (b == _offHeap) return;
+		_offHeap = b;
+		if (_store != null) {
+			_store.release();
+			_store = ParticleStore.create(b);
+			// the new store restarts its version, which could match the old batches
+			_springBatches.invalidate();
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 * Drops the columns of the packed storage of this collection. Called when the 
+	 * collection leaves its world, they are allocated again if it is stepped later.
+	 */
+	void releaseStorage() {
+		if (_store != null) _store.release();
+	}
+	
+	
+	/**
+	 * @private
+	 * The ParticleStore of this collection, with a slot for every particle, or null
+	 * if the collection isn't packed.
+	 */
+	ParticleStore getParticleStore() {
+		if (_store != null) _store.sync(_particles);
+		return _store;
+	}
+	
+	
+	/**
+	 * Determines if the fixed particles of this collection are kept in a static index.
+	 * When true, the fixed, collidable particles are held in a bounding volume 
+	 * hierarchy, and the collision checks of this collection only query it with the 
+	 * moving particles and constraints instead of testing every fixed particle. The 
+	 * index is rebuilt when a particle is added or removed, or when a fixed particle 
+	 * is moved, rotated, resized, or has its fixed or collidable property changed. 
+	 * This pays off for collections holding many fixed particles, such as level 
+	 * geometry. The default is false.
+	 * 
+	 * <p>
+	 * The index is only used by the pairwise collision checks. Groups and worlds with a
+	 * Broadphase already cull fixed particles through it.
+	 * </p>
+	 */
+	public boolean getStaticIndexing() {
+		return _staticIndexing;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setStaticIndexing(boolean b) {
+		_staticIndexing = b;
+		if (b && _staticIndex == null) {
+			_staticIndex = new StaticIndex();
+			_dynamicParticles = new ArrayList<AbstractParticle>();
+		}
+		_staticDirty = true;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void invalidateStaticIndex() {
+		_staticDirty = true;
+	}
+	
+	
+	/**
+	 * @private
+	 * Returns the static index of this collection, rebuilt if needed, or null if 
+	 * static indexing is off.
+	 */
+	StaticIndex getStaticIndex() {
+		if (! _staticIndexing) return null;
+		if (_staticDirty) {
+			_staticIndex.build(_particles);
+			_staticDirty = false;
+			_dynamicDirty = true;
+		}
+		if (_dynamicDirty) {
+			_dynamicParticles.clear();
+			int len = _particles.size();
+			for (int i = 0; i < len; i++) {
+				AbstractParticle p = _particles.get(i);
+				if (p.getCollidable() && ! p.getFixed()) _dynamicParticles.add(p);
+			}
+			_dynamicDirty = false;
+		}
+		return _staticIndex;
+	}
+	
+	
+	/**
+	 * @private
+	 * The particles the pairwise collision checks iterate: every particle, or only 
+	 * the moving, collidable ones when the fixed ones are in the static index.
+	 */
+	List<AbstractParticle> getPairParticles() {
+		return (getStaticIndex() != null) ? _dynamicParticles : _particles;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void invalidateCollidableConstraints() {
+		_collidableDirty = true;
+	}
+	
+	
+	/**
+	 * @private
+	 * The collidable SpringConstraints of this collection, in the order they were 
+	 * added. The list is rebuilt after constraints are added or removed, or when one
+	 * of them changes its <code>collidable</code> property, so the collision checks 
+	 * never visit constraints that can't collide.
+	 */
+	List<SpringConstraint> getCollidableConstraints() {
+		if (_collidableDirty) {
+			_collidableConstraints.clear();
+			int len = _constraints.size();
+			for (int i = 0; i < len; i++) {
+				SpringConstraint c = (SpringConstraint)_constraints.get(i);
+				if (c.getCollidable()) _collidableConstraints.add(c);
+			}
+			_collidableDirty = false;
+		}
+		return _collidableConstraints;
+	}
+	
+	
+	/**
+	 * @private
+	 * The box around the collidable particles and constraints of this collection,
+	 * as of the last call to <code>updateBounds()</code>. The box is infinite until 
+	 * the first call, and again after members are added or made collidable, so a 
+	 * check run before the bounds are known is never culled.
+	 */
+	AABB getBounds() {
+		return _bounds;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void invalidateBounds() {
+		_bounds.setInfinite();
+	}
+	
+	
+	/**
+	 * @private
+	 * Recomputes the box around the collidable particles and constraints of this 
+	 * collection, and the position, shape and material of the collidable area of 
+	 * every collidable constraint, which the collision checks then use as they are.
+	 * The world calls this at the start of every collision cycle, since the 
+	 * constraint cycles move particles after they are integrated.
+	 * 
+	 * <p>
+	 * Members keep moving while the collisions of the cycle are resolved, after the 
+	 * box was computed, so the box is grown by the largest distance a particle 
+	 * moved over the last step. Without that margin, a member pushed into another 
+	 * collection during the cycle could be culled until the next one.
+	 * </p>
+	 */
+	void updateBounds() {
+		
+		_bounds.setEmpty();
+		float margin = 0;
+		
+		int plen = _particles.size();
+		for (int i = 0; i < plen; i++) {
+			AbstractParticle p = _particles.get(i);
+			if (! p.getCollidable()) continue;
+			p.getBounds(_memberBounds);
+			_bounds.add(_memberBounds);
+			
+			float dx = Math.abs(p.getVx());
+			float dy = Math.abs(p.getVy());
+			if (dx > margin) margin = dx;
+			if (dy > margin) margin = dy;
+		}
+		
+		List<SpringConstraint> cs = getCollidableConstraints();
+		int clen = cs.size();
+		for (int i = 0; i < clen; i++) {
+			SpringConstraint c = cs.get(i);
+			c.getScp().updatePosition();
+			c.getScp().getBounds(_memberBounds);
+			_bounds.add(_memberBounds);
+		}
+		
+		_bounds.expand(margin);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	boolean getIsParented() {
+		return _isParented;
+	}	
+
+
+	/**
+	 * @private
+	 */		
+	void setIsParented(boolean b) {
+		_isParented = b;
+	}	
+	
+	
+	/**
+	 * The PhysicsWorld this collection is bound to. Collections that have not been
+	 * added to a world fall back to the default world of the APEngine class.
+	 */
+	PhysicsWorld getWorld() {
+		return (_world != null) ? _world : APEngine.getDefaultWorld();
+	}
+	
+	
+	/**
+	 * Tells the world that the links between its Groups changed.
+	 */
+	void invalidateTopology() {
+		if (_world != null) _world.invalidateTopology();
+	}
+	
+	
+	/**
+	 * @private
+	 * The Group this collection is part of: the Group itself, or the Group a 
+	 * Composite was added to. Null for a Composite outside any Group.
+	 */
+	Group getOwnerGroup() {
+		return null;
+	}
+	
+	
+	/**
+	 * @private
+	 * Reports every member of this collection to its world, as if each had just been
+	 * added, so a Composite added to a Group in a world only updates the islands if 
+	 * it is linked to other Groups.
+	 */
+	void membersAdded() {
+		if (_world == null) return;
+		for (int i = 0; i < _particles.size(); i++) {
+			_world.particleAdded(_particles.get(i));
+		}
+		for (int i = 0; i < _constraints.size(); i++) {
+			_world.constraintChanged(this, _constraints.get(i));
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 * Reports the constraints of this collection to its world before the collection
+	 * leaves it, so the islands are split again if any of them linked two Groups.
+	 */
+	void membersRemoved() {
+		if (_world == null) return;
+		for (int i = 0; i < _constraints.size(); i++) {
+			_world.constraintChanged(this, _constraints.get(i));
+		}
+	}
+	
+	
+	/**
+	 * The handle of this collection in the Group or world it was added to, or -1 if
+	 * it isn't in one. The handle stays the same until the collection is removed, and
+	 * can be passed to <code>getComposite()</code> of the Group or 
+	 * <code>getGroup()</code> of the world.
+	 */
+	public long getHandle() {
+		return _handle;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void setHandle(long h) {
+		_handle = h;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	int getSlot() {
+		return _slot;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void setSlot(int i) {
+		_slot = i;
+	}
+	
+	
+	/**
+	 * Takes a particle out of the particle list and updates what depended on its slot.
+	 */
+	private void detachParticle(AbstractParticle p) {
+		
+		int i = _particles.indexOf(p);
+		if (i < 0) return;
+		_particles.remove(i);
+		particleRemoved(p, i);
+		
+		p.cleanup();
+		p.setWorld(null);
+		if (p.getOwner() == this) p.setOwner(null);
+	}
+	
+	
+	/**
+	 * Initializes newly added items, in the order they were added.
+	 */
+	private void initItems(List<? extends AbstractItem> items) {
+		int len = items.size();
+		for (int i = 0; i < len; i++) {
+			items.get(i).init();
+		}
+	}
+	
+	
+	/**
+	 * Updates the static index and the packed storage for a particle appended to the
+	 * particle list. Only a fixed, collidable particle changes the static index; any
+	 * other is appended to the moving particles as well, which keeps their order.
+	 */
+	private void particleAppended(AbstractParticle p) {
+		if (p.getFixed() && p.getCollidable()) {
+			invalidateStaticIndex();
+		} else if (p.getCollidable() && ! p.getFixed() && _dynamicParticles != null 
+				&& ! _staticDirty && ! _dynamicDirty) {
+			_dynamicParticles.add(p);
+		}
+		if (_store != null) _store.add(p);
+	}
+	
+	
+	/**
+	 * Updates the static index and the packed storage for the particle removed from 
+	 * slot i of the particle list, which moved the last particle into slot i. The 
+	 * static index is only rebuilt if the particle was in it, the list of moving 
+	 * particles if it was in that, and the spring batches if a spring used either 
+	 * slot. Removing a particle never links two Groups, so the islands are left as 
+	 * they are. Any constraint still attached to the particle keeps its island joined
+	 * until the world next updates them.
+	 */
+	private void particleRemoved(AbstractParticle p, int i) {
+		if (p.getCollidable()) {
+			if (p.getFixed()) {
+				invalidateStaticIndex();
+			} else {
+				_dynamicDirty = true;
+			}
+		}
+		if (_store != null) {
+			int last = _store.remove(p, i);
+			_springBatches.slotsMoved(i, last);
+		}
+	}
+	
+	
+	/**
+	 * Takes a constraint out of the constraint list, without updating the collection.
+	 */
+	private boolean detachConstraint(AbstractConstraint c) {
+		
+		if (! _constraints.remove(c)) return false;
+		
+		if (_world != null) _world.constraintChanged(this, c);
+		c.cleanup();
+		c.setWorld(null);
+		if (c.getOwner() == this) c.setOwner(null);
+		return true;
+	}
+	
+	
+	private void constraintsRemoved() {
+		invalidateConstraintBatches();
+		invalidateCollidableConstraints();
+	}
+	
+	
+	/**
+	 * Binds this collection and every member of it to a world.
+	 */
+	void setWorld(PhysicsWorld w) {
+		_world = w;
+		for (int i = 0; i < _particles.size(); i++) {
+			_particles.get(i).setWorld(w);	
+		}
+		for (int i = 0; i < _constraints.size(); i++) {
+			_constraints.get(i).setWorld(w);
+		}
+	}	
+	
+							
+	/**
+	 * @private
+	 */
+	void integrate(float dt2) {
+		int len = _particles.size();
+		if (_store != null) {
+			ParticleStore s = getParticleStore();
+			if (_parallel && len > _chunkSize) {
+				getWorld().getForkJoinPool().invoke(
+						new IntegrateTask(s, getWorld(), 0, len, _chunkSize, dt2));
+			} else {
+				s.integrate(getWorld(), dt2, 0, len);
+			}
+			return;
+		}
+		if (_parallel && len > _chunkSize) {
+			getWorld().getForkJoinPool().invoke(
+					new IntegrateTask(_particles, 0, len, _chunkSize, dt2));
+			return;
+		}
+		for (int i = 0; i < len; i++) {
+			AbstractParticle p = _particles.get(i);;
+			p.update(dt2);	
+		}
+	}		
+	
+		
+	/**
+	 * @private
+	 */
+	void satisfyConstraints() {
+		int len = _constraints.size();
+		if (_store != null) {
+			if (len > 0) _springBatches.solve(_constraints, getParticleStore(), this);
+			return;
+		}
+		if (_parallel && len > _chunkSize) {
+			satisfyConstraintBatches();
+			return;
+		}
+		for (int i = 0; i < len; i++) {
+			AbstractConstraint c = _constraints.get(i);
+			c.resolve();	
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 * Called when constraints are added or removed, or when the rest length or 
+	 * stiffness of one changes.
+	 */
+	void invalidateConstraintBatches() {
+		_constraintBatches = null;
+		if (_springBatches != null) _springBatches.invalidate();
+	}
+	
+	
+	private void satisfyConstraintBatches() {
+		
+		if (_constraintBatches == null) _constraintBatches = buildConstraintBatches();
+		
+		for (int i = 0; i < _constraintBatches.length; i++) {
+			AbstractConstraint[] batch = _constraintBatches[i];
+			if (batch.length > _chunkSize) {
+				getWorld().getForkJoinPool().invoke(
+						new ConstraintBatchTask(batch, 0, batch.length, _chunkSize));
+			} else {
+				for (int j = 0; j < batch.length; j++) {
+					batch[j].resolve();
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Greedily colors the constraints so that no two constraints of the same color
+	 * are attached to the same particle. Each color becomes one batch.
+	 */
+	private AbstractConstraint[][] buildConstraintBatches() {
+		
+		Map<AbstractParticle, BitSet> used = new IdentityHashMap<AbstractParticle, BitSet>();
+		List<List<AbstractConstraint>> batches = new ArrayList<List<AbstractConstraint>>();
+		
+		int len = _constraints.size();
+		for (int i = 0; i < len; i++) {
+			SpringConstraint c = (SpringConstraint)_constraints.get(i);
+			BitSet u1 = usedColors(used, c.getParticle1());
+			BitSet u2 = usedColors(used, c.getParticle2());
+			
+			int color = 0;
+			while (u1.get(color) || u2.get(color)) color++;
+			
+			u1.set(color);
+			u2.set(color);
+			if (color == batches.size()) batches.add(new ArrayList<AbstractConstraint>());
+			batches.get(color).add(c);
+		}
+		
+		AbstractConstraint[][] result = new AbstractConstraint[batches.size()][];
+		for (int i = 0; i < result.length; i++) {
+			result[i] = batches.get(i).toArray(new AbstractConstraint[0]);
+		}
+		return result;
+	}
+	
+	
+	private static BitSet usedColors(Map<AbstractParticle, BitSet> used, AbstractParticle p) {
+		BitSet b = used.get(p);
+		if (b == null) {
+			b = new BitSet();
+			used.put(p, b);
+		}
+		return b;
+	}
+	
+
+	/**
+	 * @private
+	 */	
+	void checkInternalCollisions() {
+		
+		StaticIndex si = getStaticIndex();
+		List<AbstractParticle> ps = getPairParticles();
+		List<SpringConstraint> cs = getCollidableConstraints();
+	 
+		// every particle in this AbstractCollection
+		int plen = ps.size();
+		for (int j = 0; j < plen; j++) {
+			
+			AbstractParticle pa = ps.get(j);
+			if (! pa.getCollidable()) continue;
+			
+			// ...vs every other particle in this AbstractCollection
+			for (int i = j + 1; i < plen; i++) {
+				AbstractParticle pb = ps.get(i);
+				if (pb.getCollidable() && pa.shouldCollide(pb)) CollisionDetector.test(pa, pb);
+			}
+			
+			// ...vs the fixed particles in the static index
+			if (si != null) {
+				int hits = si.query(pa);
+				for (int k = 0; k < hits; k++) {
+					AbstractParticle s = si.getHit(k);
+					if (pa.shouldCollide(s)) CollisionDetector.test(pa, s);
+				}
+			}
+			
+			// ...vs every other constraint in this AbstractCollection
+			int clen = cs.size();
+			for (int n = 0; n < clen; n++) {
+				SpringConstraint c = cs.get(n);
+				if (! c.isConnectedTo(pa) && pa.shouldCollide(c.getScp())) {
+					CollisionDetector.test(pa, c.getScp());
+				}
+			}
+		}
+		
+		// the fixed particles in the static index vs every constraint
+		if (si != null) checkStaticIndexVsConstraints(si, this);
+	}
+
+
+	/**
+	 * @private
+	 */	
+	void checkCollisionsVsCollection(AbstractCollection ac) {
+		
+		// nothing in one collection can touch the other
+		if (! _bounds.overlaps(ac.getBounds())) return;
+		
+		StaticIndex si = getStaticIndex();
+		StaticIndex acsi = ac.getStaticIndex();
+		List<AbstractParticle> ps = getPairParticles();
+		List<AbstractParticle> acps = ac.getPairParticles();
+		List<SpringConstraint> cs = getCollidableConstraints();
+		List<SpringConstraint> accs = ac.getCollidableConstraints();
+		
+		// every particle in this collection...
+		int plen = ps.size();
+		for (int j = 0; j < plen; j++) {
+			
+			AbstractParticle pga = ps.get(j);
+			if (! pga.getCollidable()) continue;
+			
+			// ...vs every particle in the other collection
+			int acplen = acps.size();
+			for (int x = 0; x < acplen; x++) {
+				AbstractParticle pgb = acps.get(x);
+				if (pgb.getCollidable() && pga.shouldCollide(pgb)) CollisionDetector.test(pga, pgb);
+			}
+			// ...vs the fixed particles in the static index of the other collection
+			if (acsi != null && ! pga.getFixed()) {
+				int hits = acsi.query(pga);
+				for (int k = 0; k < hits; k++) {
+					AbstractParticle s = acsi.getHit(k);
+					if (pga.shouldCollide(s)) CollisionDetector.test(pga, s);
+				}
+			}
+			// ...vs every constraint in the other collection
+			int acclen = accs.size();
+			for (int x = 0; x < acclen; x++) {
+				SpringConstraint cgb = accs.get(x);
+				if (! cgb.isConnectedTo(pga) && pga.shouldCollide(cgb.getScp())) {
+					CollisionDetector.test(pga, cgb.getScp());
+				}
+			}
+		}
+		
+		// the fixed particles in the static index of this collection vs the moving 
+		// particles and every constraint of the other collection
+		if (si != null) {
+			int acplen = acps.size();
+			for (int x = 0; x < acplen; x++) {
+				AbstractParticle pgb = acps.get(x);
+				if (! pgb.getCollidable() || pgb.getFixed()) continue;
+				int hits = si.query(pgb);
+				for (int k = 0; k < hits; k++) {
+					AbstractParticle s = si.getHit(k);
+					if (s.shouldCollide(pgb)) CollisionDetector.test(s, pgb);
+				}
+			}
+			checkStaticIndexVsConstraints(si, ac);
+		}
+		
+		// every constraint in this collection...
+		int clen = cs.size();
+		for (int j = 0; j < clen; j++) {
+			SpringConstraint cga = cs.get(j);
+			
+			// ...vs every particle in the other collection
+			int acplen = acps.size();
+			for (int n = 0; n < acplen; n++) {
+				AbstractParticle pgb = acps.get(n);
+				if (pgb.getCollidable() && ! cga.isConnectedTo(pgb) && pgb.shouldCollide(cga.getScp())) {
+					CollisionDetector.test(pgb, cga.getScp());
+				}
+			}
+			// ...vs the fixed particles in the static index of the other collection
+			if (acsi != null) {
+				int hits = acsi.query(cga.getScp());
+				for (int k = 0; k < hits; k++) {
+					AbstractParticle s = acsi.getHit(k);
+					if (! cga.isConnectedTo(s) && s.shouldCollide(cga.getScp())) {
+						CollisionDetector.test(s, cga.getScp());
+					}
+				}
+			}
+		}
+	}
+	
+	
+	/**
+	 * Tests the fixed particles in a static index against the collidable constraints
+	 * of ac.
+	 */
+	private static void checkStaticIndexVsConstraints(StaticIndex si, AbstractCollection ac) {
+		
+		List<SpringConstraint> cs = ac.getCollidableConstraints();
+		int clen = cs.size();
+		for (int n = 0; n < clen; n++) {
+			SpringConstraint c = cs.get(n);
+			int hits = si.query(c.getScp());
+			for (int k = 0; k < hits; k++) {
+				AbstractParticle s = si.getHit(k);
+				if (! c.isConnectedTo(s) && s.shouldCollide(c.getScp())) {
+					CollisionDetector.test(s, c.getScp());
+				}
+			}
+		}
+	}			
+}
+
+
+
@@ -1,461 +1,945 @@
-/*
-Copyright (c) 2006, 2007 Alec Cove
-
-Permission is hereby granted, free of charge, to any person obtaining a copy of this 
-software and associated documentation files (the "Software"), to deal in the Software 
-without restriction, including without limitation the rights to use, copy, modify, 
-merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
-permit persons to whom the Software is furnished to do so, subject to the following 
-conditions:
-
-The above copyright notice and this permission notice shall be included in all copies 
-or substantial portions of the Software.
-
-THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
-INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
-PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
-HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
-CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
-OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
-*/
-
-/* 
-	TODO:
-	- Need removeForces method(s)
-	- Center and Position are the same, needs review.
-	- Should have alwaysRepaint functionality for Constraints, and bump up to AbstractItem
-	- See if there's anywhere where Vectors can be downgraded to simple Point classes
-*/
-
-package org.cove.ape;
-
-	
-import flash.display.Sprite;
-import flash.display.DisplayObject;
-
-import org.cove.ape.util.ArgumentError;
-
-import flash.utils;
-
- 	
-/**
- * The abstract base class for all particles.
- * 
- * <p>
- * You should not instantiate this class directly -- instead use one of the subclasses.
- * </p>
- */
-public class AbstractParticle extends AbstractItem {
-	
-	/** @private */
-	Vector2D curr;
-	/** @private */
-	Vector2D prev;
-	/** @private */
-	Vector2D samp;
-	/** @private */
-	Interval interval;
-	
-	private Vector2D forces;
-	private Vector2D temp;
-	private Collision collision;
-			
-	private float _kfr;
-	private float _mass;
-	private float _invMass;
-	private float _friction;
-	
-	private boolean _fixed;
-	private boolean _collidable;
-	
-	private Vector2D _center;
-	private int _multisample;
-		
-	
-	/** 
-	 * @private
-	 */
-	public AbstractParticle (
-			float x, 
-			float y, 
-			boolean isFixed, 
-			float mass, 
-			float elasticity,
-			float friction) {
-		
-		if (utils.getQualifiedClassName(this) == "org.cove.ape.AbstractParticle") {
-			throw new ArgumentError("AbstractParticle can't be instantiated directly");
-		}
-		
-		interval = new Interval(0,0);
-		
-		curr = new Vector2D(x, y);
-		prev = new Vector2D(x, y);
-		samp = new Vector2D();
-		temp = new Vector2D();
-		this.setFixed(isFixed);
-		
-		forces = new Vector2D();
-		collision = new Collision(new Vector2D(), new Vector2D());
-		this.setCollidable(true);
-		
-		this.setMass(mass);
-		this.setElasticity(elasticity);
-		this.setFriction(friction);
-		
-		setStyle();
-		
-		_center = new Vector2D();
-		_multisample = 0;
-	}
-
-	
-	/**
-	 * The mass of the particle. Valid values are greater than zero. By default, all particles
-	 * have a mass of 1. The mass property has no relation to the size of the particle.
-	 * 
-	 * @throws ArgumentError ArgumentError if the mass is set less than zero. 
-	 */
-	public float getMass() {
-		return _mass; 
-	}
-	
-	
-	/**
-	 * @private
-	 */
-	public void setMass(float m) {
-		if (m <= 0) throw new ArgumentError("mass may not be set <= 0"); 
-		_mass = m;
-		_invMass = 1 / _mass;
-	}	
-
-	
-	/**
-	 * The elasticity of the particle. Standard values are between 0 and 1. 
-	 * The higher the value, the greater the elasticity.
-	 * 
-	 * <p>
-	 * During collisions the elasticity values are combined. If one particle's
-	 * elasticity is set to 0.4 and the other is set to 0.4 then the collision will
-	 * be have a total elasticity of 0.8. The result will be the same if one particle
-	 * has an elasticity of 0 and the other 0.8.
-	 * </p>
-	 * 
-	 * <p>
-	 * Setting the elasticity to greater than 1 (of a single particle, or in a combined
-	 * collision) will cause particles to bounce with energy greater than naturally 
-	 * possible.
-	 * </p>
-	 */ 
-	public float getElasticity() {
-		return _kfr; 
-	}
-	
-	
-	/**
-	 * @private
-	 */
-	public void setElasticity(float k) {
-		_kfr = k;
-	}
-	
-
-	/**
-	 * Determines the number of intermediate position steps checked for collision each
-	 * cycle. Setting this number higher on fast moving particles can prevent 'tunneling'
-	 * -- when a particle moves so fast it misses collision with certain surfaces.
-	 */ 
-	public int getMultisample() {
-		return _multisample; 
-	}
-	
-	
-	/**
-	 * @private
-	 */
-	public void setMultisample(int m) {
-		_multisample = m;
-	}
-	
-	
-	/**
-	 * Returns A Vector of the current location of the particle
-	 */	
-	public Vector2D getCenter() {
-		_center.setTo(getPx(), getPy());
-		return _center;
-	}
-	
-			
-	/**
-	 * The surface friction of the particle. Values must be in the range of 0 to 1.
-	 * 
-	 * <p>
-	 * 0 is no friction (slippery), 1 is full friction (sticky).
-	 * </p>
-	 * 
-	 * <p>
-	 * During collisions, the friction values are summed, but are clamped between 1 and 0.
-	 * For example, If two particles have 0.7 as their surface friction, then the resulting
-	 * friction between the two particles will be 1 (full friction).
-	 * </p>
-	 * 
-	 * <p>
-	 * In the current release, only dynamic friction is calculated. Static friction
-	 * is planned for a later release.
-	 * </p>
-	 *
-	 * <p>
-	 * There is a bug in the current release where colliding non-fixed particles with friction
-	 * greater than 0 will behave erratically. A workaround is to only set the friction of
-	 * fixed particles.
-	 * </p>
-	 * @throws ArgumentError ArgumentError if the friction is set less than zero or greater than 1
-	 */	
-	public float getFriction() {
-		return _friction; 
-	}
-
-	
-	/**
-	 * @private
-	 */
-	public void setFriction(float f) {
-		if (f < 0 || f > 1) throw new ArgumentError("Legal friction must be >= 0 and <=1");
-		_friction = f;
-	}
-	
-	
-	/**
-	 * The fixed state of the particle. If the particle is fixed, it does not move
-	 * in response to forces or collisions. Fixed particles are good for surfaces.
-	 */
-		public boolean getFixed() {
-			return _fixed;
-		}
-
- 
-		/**
-	 * @private
-	 */
-	public void setFixed(boolean f) {
-		_fixed = f;
-	}
-	
-	
-	/**
-	 * The position of the particle. Getting the position of the particle is useful
-	 * for drawing it or testing it for some custom purpose. 
-	 * 
-	 * <p>
-	 * When you get the <code>position</code> of a particle you are given a copy of the current
-	 * location. Because of this you cannot change the position of a particle by
-	 * altering the <code>x</code> and <code>y</code> components of the Vector you have retrieved from the position property.
-	 * You have to do something instead like: <code> position = new Vector(100,100)</code>, or
-	 * you can use the <code>px</code> and <code>py</code> properties instead.
-	 * </p>
-	 * 
-	 * <p>
-	 * You can alter the position of a particle three ways: change its position, set
-	 * its velocity, or apply a force to it. Setting the position of a non-fixed particle
-	 * is not the same as setting its fixed property to true. A particle held in place by 
-	 * its position will behave as if it's attached there by a 0 length spring constraint. 
-	 * </p>
-	 */
-	public Vector2D getPosition() {
-		return new Vector2D(curr.x,curr.y);
-	}
-	
-	
-	/**
-	 * @private
-	 */
-	public void setPosition(Vector2D p) {
-		curr.copy(p);
-		prev.copy(p);
-	}
-
-
-	/**
-	 * The x position of this particle
-	 */
-	public float getPx() {
-		return curr.x;
-	}
-
-	
-	/**
-	 * @private
-	 */
-	public void setPx(float x){
-		curr.x = x;
-		prev.x = x;	
-	}
-
-
-	/**
-	 * The y position of this particle
-	 */
-	public float getPy() {
-		return curr.y;
-	}
-
-
-	/**
-	 * @private
-	 */
-	public void setPy(float y) {
-		curr.y = y;
-		prev.y = y;	
-	}
-
-
-	/**
-	 * The velocity of the particle. If you need to change the motion of a particle, 
-	 * you should either use this property, or one of the addForce methods. Generally,
-	 * the addForce methods are best for slowly altering the motion. The velocity property
-	 * is good for instantaneously setting the velocity, e.g., for projectiles.
-	 * 
-	 */
-	public Vector2D getVelocity() {
-		return curr.minus(prev);
-	}
-	
-	
-	/**
-	 * @private
-	 */	
-	public void setVelocity(Vector2D v) {
-		prev = curr.minus(v);	
-	}
-	
-	
-	/**
-	 * Determines if the particle can collide with other particles or constraints.
-	 * The default state is true.
-	 */
-	public boolean getCollidable() {
-		return _collidable;
-	}
-
-			
-	/**
-	 * @private
-	 */		
-	public void setCollidable(boolean b) {
-		_collidable = b;
-	}
-	
-	
-	/**
-	 * Assigns a DisplayObject to be used when painting this particle.
-	 */ 
-	
-	public void setDisplay(DisplayObject d)
-	{
-		this.setDisplay(d, 0, 0, 0);
-	}
-	
-	public void setDisplay(DisplayObject d, float offsetX, float offsetY, float rotation) {
-		displayObject = d;
-		displayObjectRotation = rotation;
-		displayObjectOffset = new Vector2D(offsetX, offsetY);
-	}
-	
-	
-	/**
-	 * Adds a force to the particle. The mass of the particle is taken into 
-	 * account when using this method, so it is useful for adding forces 
-	 * that simulate effects like wind. Particles with larger masses will
-	 * not be affected as greatly as those with smaller masses. Note that the
-	 * size (not to be confused with mass) of the particle has no effect 
-	 * on its physical behavior with respect to forces.
-	 * 
-	 * @param f A Vector represeting the force added.
-	 */ 
-	public void addForce(Vector2D f) {
-		forces.plusEquals(f.mult(getInvMass()));
-	}
-	
-	
-	/**
-	 * Adds a 'massless' force to the particle. The mass of the particle is 
-	 * not taken into account when using this method, so it is useful for
-	 * adding forces that simulate effects like gravity. Particles with 
-	 * larger masses will be affected the same as those with smaller masses.
-	 *
-	 * @param f A Vector represeting the force added.
-	 */ 	
-	public void addMasslessForce(Vector2D f) {
-		forces.plusEquals(f);
-	}
-	
-		
-	/**
-	 * The <code>update()</code> method is called automatically during the
-	 * APEngine.step() cycle. This method integrates the particle.
-	 */
-	public void update(float dt2) {
-		
-		if (getFixed()) 
-			return;
-		
-		// global forces
-		addForce(APEngine.force);
-		addMasslessForce(APEngine.masslessForce);
-
-		// integrate
-		temp.copy(curr);
-		
-		Vector2D nv = getVelocity().plus(forces.multEquals(dt2));
-		curr.plusEquals(nv.multEquals(APEngine.getDamping()));
-		prev.copy(temp);
-
-		// clear the forces
-		forces.setTo(0,0);
-	}
-	
-	
-	/**
-	 * @private
-	 */
-	void initDisplay() {
-		displayObject.x = displayObjectOffset.x;
-		displayObject.y = displayObjectOffset.y;
-		displayObject.rotation = displayObjectRotation;
-		getSprite().addChild(displayObject);
-	}	
-	
-		
-	/**
-	 * @private
-	 */		
-	Collision getComponents(Vector2D collisionNormal) {
-		Vector2D vel = getVelocity();
-		float vdotn = collisionNormal.dot(vel);
-		collision.vn = collisionNormal.mult(vdotn);
-		collision.vt = vel.minus(collision.vn);	
-		return collision;
-	}
-
-
-	/**
-	 * @private
-	 */	
-	void resolveCollision(
-			Vector2D mtd, Vector2D vel, Vector2D n, float d, int o, AbstractParticle p) 
-	{
-				
-		curr.plusEquals(mtd);
-		setVelocity( vel );
-	}
-	
-	
-	/**
-	 * @private
-	 */		
-	float getInvMass() {
-		return (getFixed()) ? 0 : _invMass; 
-	}
-}	
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+/* 
+	TODO:
+	- Need removeForces method(s)
+	- Center and Position are the same, needs review.
+	- Should have alwaysRepaint functionality for Constraints, and bump up to AbstractItem
+	- See if there's anywhere where Vectors can be downgraded to simple Point classes
+*/
+
+package org.cove.ape;
+
+	
+import flash.display.Sprite;
+import flash.display.DisplayObject;
+
+import org.cove.ape.util.ArgumentError;
+
+import flash.utils;
+
+ 	
+/**
+ * The abstract base class for all particles.
+ * 
+ * <p>
+ * You should not instantiate this class directly -- instead use one of the subclasses.
+ * </p>
+ */
+public class AbstractParticle extends AbstractItem {
+	
+	/** @private */
+	Vector2D samp;
+	/** @private */
+	Interval interval;
+	
+	// the state of the particle while it isn't in a ParticleStore. see getCurrX()
+	private Vector2D curr;
+	private Vector2D prev;
+	private Vector2D forces;
+	private Vector2D last;
+	
+	private Collision collision;
+			
+	private float _kfr;
+	private float _mass;
+	private float _invMass;
+	private float _friction;
+	
+	private boolean _fixed;
+	private boolean _collidable;
+	
+	private int _collisionCategory;
+	private int _collisionMask;
+	private int _collisionGroup;
+	private int _shapeType;
+	
+	private Vector2D _center;
+	private int _multisample;
+	
+	private ParticleStore _store;
+	private int _storeSlot;
+	private int _linkStamp;
+		
+	
+	/** 
+	 * @private
+	 */
+	public AbstractParticle (
+			float x, 
+			float y, 
+			boolean isFixed, 
+			float mass, 
+			float elasticity,
+			float friction) {
+		
+		if (utils.getQualifiedClassName(this) == "org.cove.ape.AbstractParticle") {
+			throw new ArgumentError("AbstractParticle can't be instantiated directly");
+		}
+		
+		interval = new Interval(0,0);
+		
+		curr = new Vector2D(x, y);
+		prev = new Vector2D(x, y);
+		samp = new Vector2D();
+		last = new Vector2D(x, y);
+		this.setFixed(isFixed);
+		
+		forces = new Vector2D();
+		collision = new Collision(new Vector2D(), new Vector2D());
+		this.setCollidable(true);
+		_collisionCategory = 1;
+		_collisionMask = 0xFFFFFFFF;
+		_collisionGroup = 0;
+		_shapeType = CollisionKernel.NONE;
+		
+		this.setMass(mass);
+		this.setElasticity(elasticity);
+		this.setFriction(friction);
+		
+		setStyle();
+		
+		_center = new Vector2D();
+		_multisample = 0;
+		_storeSlot = -1;
+	}
+
+	
+	/**
+	 * The mass of the particle. Valid values are greater than zero. By default, all particles
+	 * have a mass of 1. The mass property has no relation to the size of the particle.
+	 * 
+	 * @throws ArgumentError ArgumentError if the mass is set less than zero. 
+	 */
+	public float getMass() {
+		return _mass; 
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setMass(float m) {
+		if (m <= 0) throw new ArgumentError("mass may not be set <= 0"); 
+		_mass = m;
+		_invMass = 1 / _mass;
+		storeChanged();
+	}	
+
+	
+	/**
+	 * The elasticity of the particle. Standard values are between 0 and 1. 
+	 * The higher the value, the greater the elasticity.
+	 * 
+	 * <p>
+	 * During collisions the elasticity values are combined. If one particle's
+	 * elasticity is set to 0.4 and the other is set to 0.4 then the collision will
+	 * be have a total elasticity of 0.8. The result will be the same if one particle
+	 * has an elasticity of 0 and the other 0.8.
+	 * </p>
+	 * 
+	 * <p>
+	 * Setting the elasticity to greater than 1 (of a single particle, or in a combined
+	 * collision) will cause particles to bounce with energy greater than naturally 
+	 * possible.
+	 * </p>
+	 */ 
+	public float getElasticity() {
+		return _kfr; 
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setElasticity(float k) {
+		_kfr = k;
+		storeChanged();
+	}
+	
+
+	/**
+	 * Determines the number of intermediate position steps checked for collision each
+	 * cycle. Setting this number higher on fast moving particles can prevent 'tunneling'
+	 * -- when a particle moves so fast it misses collision with certain surfaces.
+	 */ 
+	public int getMultisample() {
+		return _multisample; 
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setMultisample(int m) {
+		_multisample = m;
+	}
+	
+	
+	/**
+	 * Returns A Vector of the current location of the particle
+	 */	
+	public Vector2D getCenter() {
+		_center.setTo(getPx(), getPy());
+		return _center;
+	}
+	
+			
+	/**
+	 * The surface friction of the particle. Values must be in the range of 0 to 1.
+	 * 
+	 * <p>
+	 * 0 is no friction (slippery), 1 is full friction (sticky).
+	 * </p>
+	 * 
+	 * <p>
+	 * During collisions, the friction values are summed, but are clamped between 1 and 0.
+	 * For example, If two particles have 0.7 as their surface friction, then the resulting
+	 * friction between the two particles will be 1 (full friction).
+	 * </p>
+	 * 
+	 * <p>
+	 * In the current release, only dynamic friction is calculated. Static friction
+	 * is planned for a later release.
+	 * </p>
+	 *
+	 * <p>
+	 * There is a bug in the current release where colliding non-fixed particles with friction
+	 * greater than 0 will behave erratically. A workaround is to only set the friction of
+	 * fixed particles.
+	 * </p>
+	 * @throws ArgumentError ArgumentError if the friction is set less than zero or greater than 1
+	 */	
+	public float getFriction() {
+		return _friction; 
+	}
+
+	
+	/**
+	 * @private
+	 */
+	public void setFriction(float f) {
+		if (f < 0 || f > 1) throw new ArgumentError("Legal friction must be >= 0 and <=1");
+		_friction = f;
+		storeChanged();
+	}
+	
+	
+	/**
+	 * The fixed state of the particle. If the particle is fixed, it does not move
+	 * in response to forces or collisions. Fixed particles are good for surfaces.
+	 */
+		public boolean getFixed() {
+			return _fixed;
+		}
+
+ 
+		/**
+	 * @private
+	 */
+	public void setFixed(boolean f) {
+		if (f != _fixed && getOwner() != null) getOwner().invalidateStaticIndex();
+		_fixed = f;
+		storeChanged();
+	}
+	
+	
+	/**
+	 * The position of the particle. Getting the position of the particle is useful
+	 * for drawing it or testing it for some custom purpose. 
+	 * 
+	 * <p>
+	 * When you get the <code>position</code> of a particle you are given a copy of the current
+	 * location. Because of this you cannot change the position of a particle by
+	 * altering the <code>x</code> and <code>y</code> components of the Vector you have retrieved from the position property.
+	 * You have to do something instead like: <code> position = new Vector(100,100)</code>, or
+	 * you can use the <code>px</code> and <code>py</code> properties instead.
+	 * </p>
+	 * 
+	 * <p>
+	 * You can alter the position of a particle three ways: change its position, set
+	 * its velocity, or apply a force to it. Setting the position of a non-fixed particle
+	 * is not the same as setting its fixed property to true. A particle held in place by 
+	 * its position will behave as if it's attached there by a 0 length spring constraint. 
+	 * </p>
+	 */
+	public Vector2D getPosition() {
+		return new Vector2D(getCurrX(), getCurrY());
+	}
+	
+	
+	/**
+	 * Same as <code>getPosition()</code>, but copies the position into out and returns 
+	 * it, so no Vector is created.
+	 */
+	public Vector2D getPosition(Vector2D out) {
+		out.setTo(getCurrX(), getCurrY());
+		return out;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setPosition(Vector2D p) {
+		setCurr(p.x, p.y);
+		setPrev(p.x, p.y);
+		setLast(p.x, p.y);
+		staticBoundsChanged();
+	}
+
+
+	/**
+	 * The x position of this particle
+	 */
+	public float getPx() {
+		return getCurrX();
+	}
+
+	
+	/**
+	 * @private
+	 */
+	public void setPx(float x){
+		setCurr(x, getCurrY());
+		setPrev(x, getPrevY());
+		setLast(x, getLastY());
+		staticBoundsChanged();
+	}
+
+
+	/**
+	 * The y position of this particle
+	 */
+	public float getPy() {
+		return getCurrY();
+	}
+
+
+	/**
+	 * @private
+	 */
+	public void setPy(float y) {
+		setCurr(getCurrX(), y);
+		setPrev(getPrevX(), y);
+		setLast(getLastX(), y);
+		staticBoundsChanged();
+	}
+	
+	
+	/**
+	 * The x position of this particle interpolated between the last two steps.
+	 * 
+	 * @param alpha The blend factor between the position before the last step (0)
+	 * and the current position (1), usually <code>PhysicsWorld.getInterpolationAlpha()</code>.
+	 */
+	public float getInterpolatedPx(float alpha) {
+		float lx = getLastX();
+		return lx + (getCurrX() - lx) * alpha;
+	}
+	
+	
+	/**
+	 * The y position of this particle interpolated between the last two steps.
+	 * 
+	 * @param alpha The blend factor between the position before the last step (0)
+	 * and the current position (1), usually <code>PhysicsWorld.getInterpolationAlpha()</code>.
+	 */
+	public float getInterpolatedPy(float alpha) {
+		float ly = getLastY();
+		return ly + (getCurrY() - ly) * alpha;
+	}
+	
+	
+	/**
+	 * The position of this particle interpolated between the last two steps. Rendering
+	 * the interpolated position lets the display run at a higher rate than the 
+	 * simulation without visible stutter.
+	 * 
+	 * @param alpha The blend factor between the position before the last step (0)
+	 * and the current position (1), usually <code>PhysicsWorld.getInterpolationAlpha()</code>.
+	 */
+	public Vector2D getInterpolatedPosition(float alpha) {
+		return new Vector2D(getInterpolatedPx(alpha), getInterpolatedPy(alpha));
+	}
+	
+	
+	/**
+	 * Same as <code>getInterpolatedPosition()</code>, but stores the position in out 
+	 * and returns it.
+	 */
+	public Vector2D getInterpolatedPosition(float alpha, Vector2D out) {
+		out.setTo(getInterpolatedPx(alpha), getInterpolatedPy(alpha));
+		return out;
+	}
+
+
+	/**
+	 * The velocity of the particle. If you need to change the motion of a particle, 
+	 * you should either use this property, or one of the addForce methods. Generally,
+	 * the addForce methods are best for slowly altering the motion. The velocity property
+	 * is good for instantaneously setting the velocity, e.g., for projectiles.
+	 * 
+	 */
+	public Vector2D getVelocity() {
+		return new Vector2D(getVx(), getVy());
+	}
+	
+	
+	/**
+	 * Same as <code>getVelocity()</code>, but stores the velocity in out and returns it.
+	 */
+	public Vector2D getVelocity(Vector2D out) {
+		out.setTo(getVx(), getVy());
+		return out;
+	}
+	
+	
+	/**
+	 * The x component of the velocity of this particle.
+	 */
+	public float getVx() {
+		return getCurrX() - getPrevX();
+	}
+	
+	
+	/**
+	 * The y component of the velocity of this particle.
+	 */
+	public float getVy() {
+		return getCurrY() - getPrevY();
+	}
+	
+	
+	/**
+	 * The rotation of the particle in radians. Particles that don't rotate, like plain
+	 * CircleParticles, return 0.
+	 */
+	public float getRadian() {
+		return 0;
+	}
+	
+	
+	/**
+	 * @private
+	 */	
+	public void setVelocity(Vector2D v) {
+		setPrev(getCurrX() - v.x, getCurrY() - v.y);
+	}
+	
+	
+	/**
+	 * Determines if the particle can collide with other particles or constraints.
+	 * The default state is true.
+	 */
+	public boolean getCollidable() {
+		return _collidable;
+	}
+
+			
+	/**
+	 * @private
+	 */		
+	public void setCollidable(boolean b) {
+		if (b != _collidable && getOwner() != null) {
+			getOwner().invalidateStaticIndex();
+			getOwner().invalidateBounds();
+		}
+		_collidable = b;
+		storeChanged();
+	}
+	
+	
+	/**
+	 * The collision categories this particle belongs to, as a bit field. Two particles
+	 * are only tested for collision if the categories of each one share a bit with the
+	 * mask of the other. The default is 1.
+	 */
+	public int getCollisionCategory() {
+		return _collisionCategory;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setCollisionCategory(int c) {
+		_collisionCategory = c;
+	}
+	
+	
+	/**
+	 * The collision categories this particle collides with, as a bit field. The default
+	 * is 0xFFFFFFFF, which collides with every category.
+	 */
+	public int getCollisionMask() {
+		return _collisionMask;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setCollisionMask(int m) {
+		_collisionMask = m;
+	}
+	
+	
+	/**
+	 * The collision group of this particle. Particles sharing a negative group never 
+	 * collide with each other, and particles sharing a positive group always do, 
+	 * regardless of their categories and masks. The default, 0, is no group.
+	 */
+	public int getCollisionGroup() {
+		return _collisionGroup;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setCollisionGroup(int g) {
+		_collisionGroup = g;
+	}
+	
+	
+	/**
+	 * The shape type of this particle, used to look up the CollisionKernel that tests
+	 * it against other particles. See <code>CollisionKernel.registerShapeType()</code>.
+	 */
+	public int getShapeType() {
+		return _shapeType;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	protected void setShapeType(int t) {
+		_shapeType = t;
+	}
+	
+	
+	/**
+	 * Assigns a DisplayObject to be used when painting this particle.
+	 */ 
+	
+	public void setDisplay(DisplayObject d)
+	{
+		this.setDisplay(d, 0, 0, 0);
+	}
+	
+	public void setDisplay(DisplayObject d, float offsetX, float offsetY, float rotation) {
+		displayObject = d;
+		displayObjectRotation = rotation;
+		displayObjectOffset = new Vector2D(offsetX, offsetY);
+	}
+	
+	
+	/**
+	 * Adds a force to the particle. The mass of the particle is taken into 
+	 * account when using this method, so it is useful for adding forces 
+	 * that simulate effects like wind. Particles with larger masses will
+	 * not be affected as greatly as those with smaller masses. Note that the
+	 * size (not to be confused with mass) of the particle has no effect 
+	 * on its physical behavior with respect to forces.
+	 * 
+	 * @param f A Vector represeting the force added.
+	 */ 
+	public void addForce(Vector2D f) {
+		float im = getInvMass();
+		setForces(getForceX() + f.x * im, getForceY() + f.y * im);
+	}
+	
+	
+	/**
+	 * Adds a 'massless' force to the particle. The mass of the particle is 
+	 * not taken into account when using this method, so it is useful for
+	 * adding forces that simulate effects like gravity. Particles with 
+	 * larger masses will be affected the same as those with smaller masses.
+	 *
+	 * @param f A Vector represeting the force added.
+	 */ 	
+	public void addMasslessForce(Vector2D f) {
+		setForces(getForceX() + f.x, getForceY() + f.y);
+	}
+	
+		
+	/**
+	 * The <code>update()</code> method is called automatically during the
+	 * APEngine.step() cycle. This method integrates the particle.
+	 */
+	public void update(float dt2) {
+		
+		// remember where this step started for interpolated rendering
+		float x = getCurrX();
+		float y = getCurrY();
+		setLast(x, y);
+		
+		if (getFixed()) 
+			return;
+		
+		PhysicsWorld w = getWorld();
+		
+		// global forces
+		addForce(w.force);
+		addMasslessForce(w.masslessForce);
+
+		// integrate
+		float fx = getForceX() * dt2;
+		float fy = getForceY() * dt2;
+		float damping = w.getDamping();
+		setCurr(x + (x - getPrevX() + fx) * damping, y + (y - getPrevY() + fy) * damping);
+		setPrev(x, y);
+
+		// clear the forces
+		setForces(0, 0);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void initDisplay() {
+		displayObject.x = displayObjectOffset.x;
+		displayObject.y = displayObjectOffset.y;
+		displayObject.rotation = displayObjectRotation;
+		getSprite().addChild(displayObject);
+	}	
+	
+		
+	/**
+	 * @private
+	 */		
+	Collision getComponents(Vector2D collisionNormal) {
+		Vector2D vel = getVelocity(collision.vt);
+		float vdotn = collisionNormal.dot(vel);
+		collisionNormal.mult(vdotn, collision.vn);
+		vel.minusEquals(collision.vn);	
+		return collision;
+	}
+	
+	
+	/**
+	 * @private
+	 * The scratch vectors used while this particle is in a collision.
+	 */
+	final Collision getCollision() {
+		return collision;
+	}
+
+
+	/**
+	 * @private
+	 */	
+	void resolveCollision(
+			Vector2D mtd, Vector2D vel, Vector2D n, float d, int o, AbstractParticle p) 
+	{
+				
+		setCurr(getCurrX() + mtd.x, getCurrY() + mtd.y);
+		setVelocity( vel );
+	}
+	
+	
+	/**
+	 * @private
+	 */		
+	float getInvMass() {
+		return (getFixed()) ? 0 : _invMass; 
+	}
+	
+	
+	/**
+	 * @private
+	 * Half the width of the axis aligned box around the particle.
+	 */
+	float getBoundsHalfWidth() {
+		return 0;
+	}
+	
+	
+	/**
+	 * @private
+	 * Half the height of the axis aligned box around the particle.
+	 */
+	float getBoundsHalfHeight() {
+		return 0;
+	}
+	
+	
+	/**
+	 * @private
+	 * Returns true if the collision filters of this particle and p let them collide.
+	 */
+	boolean shouldCollide(AbstractParticle p) {
+		if (_collisionGroup != 0 && _collisionGroup == p._collisionGroup) return _collisionGroup > 0;
+		return (_collisionCategory & p._collisionMask) != 0 && (p._collisionCategory & _collisionMask) != 0;
+	}
+	
+	
+	/**
+	 * @private
+	 * The topology stamp of the last world that found this particle at an end of one
+	 * of its constraints. See <code>PhysicsWorld.particleAdded()</code>.
+	 */
+	final int getLinkStamp() {
+		return _linkStamp;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	final void setLinkStamp(int s) {
+		_linkStamp = s;
+	}
+	
+	
+	/**
+	 * @private
+	 * The ParticleStore holding this particle, or null.
+	 */
+	final ParticleStore getStore() {
+		return _store;
+	}
+	
+	
+	/**
+	 * @private
+	 * The slot of this particle in its ParticleStore.
+	 */
+	final int getStoreSlot() {
+		return _storeSlot;
+	}
+	
+	
+	/**
+	 * @private
+	 * Moves this particle into slot i of s, or out of its store if s is null. Its 
+	 * position, previous position, forces and last position move along, from the 
+	 * old store or the vectors of the particle to the new store or the vectors.
+	 */
+	final void setStoreSlot(ParticleStore s, int i) {
+		float cx = getCurrX();
+		float cy = getCurrY();
+		float px = getPrevX();
+		float py = getPrevY();
+		float fx = getForceX();
+		float fy = getForceY();
+		float lx = getLastX();
+		float ly = getLastY();
+		
+		_store = s;
+		_storeSlot = i;
+		
+		setCurr(cx, cy);
+		setPrev(px, py);
+		setForces(fx, fy);
+		setLast(lx, ly);
+	}
+	
+	
+	/**
+	 * @private
+	 * The x of the current position. While this particle is in a ParticleStore, the
+	 * columns of the store hold its position, previous position, forces and last 
+	 * position, and the vectors of the particle are out of date. Everything reads and
+	 * writes that state through these accessors, which go to the store or the 
+	 * vectors.
+	 */
+	final float getCurrX() {
+		return (_store == null) ? curr.x : _store.get(ParticleStore.PX, _storeSlot);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	final float getCurrY() {
+		return (_store == null) ? curr.y : _store.get(ParticleStore.PY, _storeSlot);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	final void setCurr(float x, float y) {
+		if (_store == null) {
+			curr.x = x;
+			curr.y = y;
+		} else {
+			_store.put(ParticleStore.PX, _storeSlot, x);
+			_store.put(ParticleStore.PY, _storeSlot, y);
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 * The x of the position before the last step.
+	 */
+	final float getPrevX() {
+		return (_store == null) ? prev.x : _store.get(ParticleStore.OX, _storeSlot);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	final float getPrevY() {
+		return (_store == null) ? prev.y : _store.get(ParticleStore.OY, _storeSlot);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	final void setPrev(float x, float y) {
+		if (_store == null) {
+			prev.x = x;
+			prev.y = y;
+		} else {
+			_store.put(ParticleStore.OX, _storeSlot, x);
+			_store.put(ParticleStore.OY, _storeSlot, y);
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 * The x of the forces added since the last step.
+	 */
+	final float getForceX() {
+		return (_store == null) ? forces.x : _store.get(ParticleStore.FX, _storeSlot);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	final float getForceY() {
+		return (_store == null) ? forces.y : _store.get(ParticleStore.FY, _storeSlot);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	final void setForces(float x, float y) {
+		if (_store == null) {
+			forces.x = x;
+			forces.y = y;
+		} else {
+			_store.put(ParticleStore.FX, _storeSlot, x);
+			_store.put(ParticleStore.FY, _storeSlot, y);
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 * The x of the position at the start of the last step, for interpolation.
+	 */
+	final float getLastX() {
+		return (_store == null) ? last.x : _store.get(ParticleStore.LX, _storeSlot);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	final float getLastY() {
+		return (_store == null) ? last.y : _store.get(ParticleStore.LY, _storeSlot);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	final void setLast(float x, float y) {
+		if (_store == null) {
+			last.x = x;
+			last.y = y;
+		} else {
+			_store.put(ParticleStore.LX, _storeSlot, x);
+			_store.put(ParticleStore.LY, _storeSlot, y);
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 * Returns true if this particle is integrated exactly as <code>update()</code> does 
+	 * here, so a ParticleStore can integrate it from its arrays. Subclasses that 
+	 * override <code>update()</code> are integrated by calling it instead.
+	 */
+	boolean hasPlainUpdate() {
+		Class<?> c = getClass();
+		return c == CircleParticle.class || c == RectangleParticle.class;
+	}
+	
+	
+	/**
+	 * Writes the material and flags of this particle through to its ParticleStore.
+	 */
+	private void storeChanged() {
+		if (_store != null) _store.updateMaterial(_storeSlot);
+	}
+	
+	
+	/**
+	 * @private
+	 * Tells the owning collection that the bounds of this particle changed, if the
+	 * particle is fixed and so may be held in its static index. Called by every 
+	 * setter that moves, rotates or resizes a particle.
+	 */
+	void staticBoundsChanged() {
+		if (_fixed && getOwner() != null) getOwner().invalidateStaticIndex();
+	}
+	
+	
+	/**
+	 * @private
+	 * Sets b to the axis aligned box around the particle. Multisampled particles
+	 * are tested anywhere between their previous and current positions, so their
+	 * box covers both.
+	 */
+	void getBounds(AABB b) {
+		float hw = getBoundsHalfWidth();
+		float hh = getBoundsHalfHeight();
+		float x = getCurrX();
+		float y = getCurrY();
+		if (_multisample > 0) {
+			float px = getPrevX();
+			float py = getPrevY();
+			b.minX = Math.min(x, px) - hw;
+			b.minY = Math.min(y, py) - hh;
+			b.maxX = Math.max(x, px) + hw;
+			b.maxY = Math.max(y, py) + hh;
+		} else {
+			b.minX = x - hw;
+			b.minY = y - hh;
+			b.maxX = x + hw;
+			b.maxY = y + hh;
+		}
+	}
+}	
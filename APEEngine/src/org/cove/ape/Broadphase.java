@@ -0,0 +1,53 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.List;
+
+/**
+ * The abstract base class for broadphase collision culling. A broadphase takes the
+ * collidable particles of a collision check and reports the pairs whose bounding 
+ * boxes may overlap, so only those pairs reach the narrowphase tests.
+ * 
+ * <p>
+ * You should not instantiate this class directly -- instead use one of the subclasses.
+ * </p>
+ */
+public abstract class Broadphase {
+	
+	
+	/**
+	 * @private
+	 * Adds to pairs the index pairs of every two proxies whose bounds may overlap. 
+	 * Every candidate pair is reported once, with the lower index first.
+	 */
+	abstract void findPairs(List<AbstractParticle> proxies, PairBuffer pairs);
+	
+	
+	/**
+	 * @private
+	 * Returns a new, empty broadphase with the same settings, for use on another 
+	 * set of particles. The Groups and the world only ever run copies, so the 
+	 * instance handed to them is never queried itself.
+	 */
+	abstract Broadphase copy();
+}
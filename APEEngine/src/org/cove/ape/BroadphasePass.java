@@ -0,0 +1,281 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs collision checks through a single Broadphase. Every collidable particle and 
+ * collidable constraint of the Groups added to the pass becomes a proxy, tagged with
+ * the Group it came from. Candidate pairs are then filtered by their tags, and as in 
+ * the pairwise Group checks, members of the same Composite are never tested against
+ * each other.
+ * 
+ * <p>
+ * Accepted pairs are bucketed by the shape types of their particles, and each bucket 
+ * is tested in one go by <code>flush()</code>, so runs of tests go through the same 
+ * CollisionKernel. With <code>batchCircles</code>, the circle vs circle bucket is 
+ * instead handed to a CircleBatch.
+ * </p>
+ */
+final class BroadphasePass {
+	
+	private Broadphase broadphase;
+	private List<AbstractParticle> proxies;
+	private PairBuffer pairs;
+	
+	// accepted pairs, by shape type pair
+	private PairBuffer[] buckets;
+	private int numShapeTypes;
+	private CircleBatch circles;
+	
+	// owning Group index and collection of every proxy
+	private int[] groupOf;
+	private AbstractCollection[] ownerOf;
+	
+	
+	BroadphasePass(Broadphase broadphase) {
+		this.broadphase = broadphase;
+		proxies = new ArrayList<AbstractParticle>();
+		pairs = new PairBuffer();
+		buckets = new PairBuffer[0];
+		groupOf = new int[64];
+		ownerOf = new AbstractCollection[64];
+	}
+	
+	
+	/**
+	 * Tests the Groups of a world against each other. Proxies are tagged with the 
+	 * index of their Group in the world, and a pair is tested if both are in the same
+	 * Group with <code>collideInternal</code> set, or if their Groups are linked 
+	 * through <code>addCollidable</code>.
+	 */
+	void run(PhysicsWorld world, List<Group> gs) {
+		
+		clear();
+		int len = gs.size();
+		for (int i = 0; i < len; i++) {
+			Group g = gs.get(i);
+			addGroup(g, world.indexOf(g));
+		}
+		findPairs();
+		
+		List<Group> groups = world.getGroups();
+		int plen = pairs.size();
+		for (int i = 0; i < plen; i++) {
+			int a = pairs.getA(i);
+			int b = pairs.getB(i);
+			int ga = groupOf[a];
+			int gb = groupOf[b];
+			
+			if (ga == gb) {
+				if (! groups.get(ga).getCollideInternal() || sameComposite(a, b)) continue;
+			} else if (! world.isLinked(ga, gb)) {
+				continue;
+			}
+			test(a, b);
+		}
+		flush(world.getBatchedContacts());
+	}
+	
+	
+	void clear() {
+		proxies.clear();
+		
+		numShapeTypes = CollisionKernel.getNumShapeTypes();
+		int n = numShapeTypes * numShapeTypes;
+		if (buckets.length < n) {
+			PairBuffer[] b = new PairBuffer[n];
+			System.arraycopy(buckets, 0, b, 0, buckets.length);
+			for (int i = buckets.length; i < n; i++) b[i] = new PairBuffer();
+			buckets = b;
+		}
+	}
+	
+	
+	/**
+	 * Adds the collidable members of a Group and of its Composites, tagged with tag.
+	 */
+	void addGroup(Group g, int tag) {
+		addMembers(g, tag);
+		List<Composite> cmps = g.getComposites();
+		for (int j = 0; j < cmps.size(); j++) {
+			addMembers(cmps.get(j), tag);
+		}
+	}
+	
+	
+	void findPairs() {
+		pairs.clear();
+		broadphase.findPairs(proxies, pairs);
+	}
+	
+	
+	int numPairs() {
+		return pairs.size();
+	}
+	
+	
+	int getA(int i) {
+		return pairs.getA(i);
+	}
+	
+	
+	int getB(int i) {
+		return pairs.getB(i);
+	}
+	
+	
+	int getTag(int proxy) {
+		return groupOf[proxy];
+	}
+	
+	
+	boolean sameComposite(int a, int b) {
+		return ownerOf[a] == ownerOf[b] && ownerOf[a] instanceof Composite;
+	}
+	
+	
+	/**
+	 * Queues a candidate pair for testing by <code>flush()</code>, unless it is filtered
+	 * out.
+	 */
+	void test(int a, int b) {
+		
+		AbstractParticle pa = proxies.get(a);
+		AbstractParticle pb = proxies.get(b);
+		
+		int order = CollisionDetector.candidateOrder(pa, pb);
+		if (order == 0) return;
+		if (order < 0) {
+			int t = a;
+			a = b;
+			b = t;
+			AbstractParticle tp = pa;
+			pa = pb;
+			pb = tp;
+		}
+		
+		int ta = pa.getShapeType();
+		int tb = pb.getShapeType();
+		if (ta < 0 || tb < 0) return;
+		if (ta >= numShapeTypes || tb >= numShapeTypes) {
+			// registered since clear(), there is no bucket for it
+			CollisionDetector.test(pa, pb);
+			return;
+		}
+		buckets[ta * numShapeTypes + tb].add(a, b);
+	}
+	
+	
+	/**
+	 * Tests the queued pairs, one shape type pair at a time. If batchCircles is true, 
+	 * the circle vs circle pairs are tested together by a CircleBatch.
+	 */
+	void flush(boolean batchCircles) {
+		int n = numShapeTypes * numShapeTypes;
+		int cc = CollisionKernel.CIRCLE * numShapeTypes + CollisionKernel.CIRCLE;
+		for (int i = 0; i < n; i++) {
+			PairBuffer bucket = buckets[i];
+			if (batchCircles && i == cc) {
+				flushCircles(bucket);
+			} else {
+				int len = bucket.size();
+				for (int j = 0; j < len; j++) {
+					CollisionDetector.test(proxies.get(bucket.getA(j)), proxies.get(bucket.getB(j)));
+				}
+			}
+			bucket.clear();
+		}
+	}
+	
+	
+	/**
+	 * Runs the circle vs circle pairs through the CircleBatch. Multisampled pairs are
+	 * tested one at a time afterwards.
+	 */
+	private void flushCircles(PairBuffer bucket) {
+		
+		if (circles == null) circles = new CircleBatch();
+		circles.clear(proxies.size());
+		
+		int len = bucket.size();
+		int deferred = 0;
+		for (int j = 0; j < len; j++) {
+			int a = bucket.getA(j);
+			int b = bucket.getB(j);
+			AbstractParticle pa = proxies.get(a);
+			AbstractParticle pb = proxies.get(b);
+			
+			if (pa.getFixed() && pb.getFixed()) continue;
+			if (pa.getMultisample() > 0 || pb.getMultisample() > 0) {
+				deferred++;
+				continue;
+			}
+			circles.add((CircleParticle) pa, a, (CircleParticle) pb, b);
+		}
+		circles.run(proxies);
+		
+		for (int j = 0; deferred > 0 && j < len; j++) {
+			AbstractParticle pa = proxies.get(bucket.getA(j));
+			AbstractParticle pb = proxies.get(bucket.getB(j));
+			if (pa.getMultisample() > 0 || pb.getMultisample() > 0) {
+				CollisionDetector.test(pa, pb);
+				deferred--;
+			}
+		}
+	}
+	
+	
+	private void addMembers(AbstractCollection c, int gi) {
+		
+		List<AbstractParticle> ps = c.getParticles();
+		int plen = ps.size();
+		for (int i = 0; i < plen; i++) {
+			AbstractParticle p = ps.get(i);
+			if (p.getCollidable()) addProxy(p, c, gi);
+		}
+		
+		List<SpringConstraint> cs = c.getCollidableConstraints();
+		int clen = cs.size();
+		for (int i = 0; i < clen; i++) {
+			addProxy(cs.get(i).getScp(), c, gi);
+		}
+	}
+	
+	
+	private void addProxy(AbstractParticle p, AbstractCollection c, int gi) {
+		int n = proxies.size();
+		if (n == groupOf.length) {
+			int[] g = new int[n * 2];
+			AbstractCollection[] o = new AbstractCollection[n * 2];
+			System.arraycopy(groupOf, 0, g, 0, n);
+			System.arraycopy(ownerOf, 0, o, 0, n);
+			groupOf = g;
+			ownerOf = o;
+		}
+		proxies.add(p);
+		groupOf[n] = gi;
+		ownerOf[n] = c;
+	}
+}
@@ -0,0 +1,132 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+/**
+ * Tests a batch of circle vs circle pairs at once. The positions and radii of the
+ * circles are loaded into arrays by proxy index, a CircleKernel finds the normal and
+ * depth of every pair, and the pairs in contact are collected into compact contact 
+ * records, which are then resolved in order.
+ */
+final class CircleBatch {
+	
+	private static final CircleKernel kernel = CircleKernel.load();
+	
+	// pairs, as proxy indices
+	int[] a;
+	int[] b;
+	private int numPairs;
+	
+	// circles, by proxy index
+	float[] px;
+	float[] py;
+	float[] radius;
+	
+	// kernel output, by pair. depth is 0 for pairs not in contact
+	float[] nx;
+	float[] ny;
+	float[] depth;
+	
+	// the pairs in contact
+	private int[] contacts;
+	private int numContacts;
+	
+	
+	CircleBatch() {
+		a = b = contacts = new int[0];
+		px = py = radius = new float[0];
+		nx = ny = depth = new float[0];
+	}
+	
+	
+	void clear(int numProxies) {
+		numPairs = 0;
+		if (px.length < numProxies) {
+			int n = Math.max(numProxies, px.length * 2);
+			px = new float[n];
+			py = new float[n];
+			radius = new float[n];
+		}
+	}
+	
+	
+	/**
+	 * Adds a pair of circles that are not multisampled, with their proxy indices.
+	 */
+	void add(CircleParticle ca, int ia, CircleParticle cb, int ib) {
+		if (numPairs == a.length) {
+			int n = Math.max(64, a.length * 2);
+			a = grow(a, n);
+			b = grow(b, n);
+			nx = new float[n];
+			ny = new float[n];
+			depth = new float[n];
+			contacts = new int[n];
+		}
+		a[numPairs] = ia;
+		b[numPairs] = ib;
+		numPairs++;
+		
+		px[ia] = ca.getCurrX();
+		py[ia] = ca.getCurrY();
+		radius[ia] = ca.getRadius();
+		px[ib] = cb.getCurrX();
+		py[ib] = cb.getCurrY();
+		radius[ib] = cb.getRadius();
+	}
+	
+	
+	/**
+	 * Tests all the pairs added since <code>clear()</code>, then resolves the ones in
+	 * contact. proxies maps the proxy indices back to particles.
+	 */
+	void run(java.util.List<AbstractParticle> proxies) {
+		
+		kernel.test(this, 0, numPairs);
+		
+		numContacts = 0;
+		for (int i = 0; i < numPairs; i++) {
+			if (depth[i] > 0) contacts[numContacts++] = i;
+		}
+		
+		for (int k = 0; k < numContacts; k++) {
+			int i = contacts[k];
+			AbstractParticle pa = proxies.get(a[i]);
+			AbstractParticle pb = proxies.get(b[i]);
+			
+			// the resolver moves the particles to their sample positions
+			pa.samp.setTo(pa.getCurrX(), pa.getCurrY());
+			pb.samp.setTo(pb.getCurrX(), pb.getCurrY());
+			
+			Vector2D n = pa.getCollision().normal;
+			n.setTo(nx[i], ny[i]);
+			CollisionResolver.resolveParticleParticle(pa, pb, n, depth[i]);
+		}
+	}
+	
+	
+	private static int[] grow(int[] v, int n) {
+		int[] g = new int[n];
+		System.arraycopy(v, 0, g, 0, v.length);
+		return g;
+	}
+}
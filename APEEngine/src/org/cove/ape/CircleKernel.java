@@ -0,0 +1,53 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+/**
+ * Finds the contact normal and depth of a range of the pairs of a CircleBatch. The
+ * scalar kernel is always available. A kernel using the incubating Vector API is 
+ * loaded instead if it was compiled into the classpath and the 
+ * <code>jdk.incubator.vector</code> module is enabled. Both give the same results.
+ */
+abstract class CircleKernel {
+	
+	/**
+	 * Returns the vector kernel if it can be loaded, and the scalar one otherwise.
+	 */
+	static CircleKernel load() {
+		try {
+			Class<?> c = Class.forName("org.cove.ape.VectorCircleKernel");
+			return (CircleKernel) c.getDeclaredConstructor().newInstance();
+		} catch (Throwable t) {
+			// not compiled in, or the module isn't enabled
+			return new ScalarCircleKernel();
+		}
+	}
+	
+	
+	/**
+	 * Writes the unit normal, pointing from b to a, and the penetration depth of the
+	 * pairs lo to hi of batch. Pairs that don't collide get a depth of 0. A pair 
+	 * collides under the same conditions as in 
+	 * <code>CollisionDetector.testCirclevsCircle()</code>.
+	 */
+	abstract void test(CircleBatch batch, int lo, int hi);
+}
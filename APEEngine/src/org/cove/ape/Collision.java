@@ -1,34 +1,56 @@
-/*
-Copyright (c) 2006, 2007 Alec Cove
-
-Permission is hereby granted, free of charge, to any person obtaining a copy of this 
-software and associated documentation files (the "Software"), to deal in the Software 
-without restriction, including without limitation the rights to use, copy, modify, 
-merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
-permit persons to whom the Software is furnished to do so, subject to the following 
-conditions:
-
-The above copyright notice and this permission notice shall be included in all copies 
-or substantial portions of the Software.
-
-THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
-INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
-PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
-HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
-CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
-OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
-*/
-
-package org.cove.ape;
-
-
-final class Collision {
-
-	Vector2D vn;
-	Vector2D vt;
-	
-	public Collision( Vector2D vn, Vector2D vt) {
-		this.vn = vn;
-		this.vt = vt;
-	}
-}
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+
+/**
+ * The velocity components of a particle in a collision, along with scratch vectors
+ * for the rest of the collision math, so resolving a contact creates no objects. 
+ * Each particle owns one; a particle is only resolved by the thread stepping its
+ * island, so the scratch vectors are never shared.
+ * 
+ * <p>
+ * That holds because islands share no particles: two particles that can touch 
+ * belong to Groups linked by a collision edge, and so to the same island. Within
+ * an island the collision checks are never split across threads. Only the 
+ * integration and constraint passes are, and they don't use this object.
+ * </p>
+ */
+final class Collision {
+
+	Vector2D vn;
+	Vector2D vt;
+	
+	// the collision normal found by the narrowphase, and the position and velocity
+	// changes found by the resolver
+	Vector2D normal;
+	Vector2D mtd;
+	Vector2D vel;
+	
+	public Collision( Vector2D vn, Vector2D vt) {
+		this.vn = vn;
+		this.vt = vt;
+		normal = new Vector2D();
+		mtd = new Vector2D();
+		vel = new Vector2D();
+	}
+}
@@ -0,0 +1,133 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import org.cove.ape.util.ArgumentError;
+
+/**
+ * The abstract base class for narrowphase collision tests between two shape types.
+ * Every particle has a shape type, and the tests for each pair of types are looked up
+ * in a table, so new shapes can be added by registering a shape type for them and a
+ * kernel for every type they should collide with.
+ * 
+ * <p>
+ * Shape types and kernels are global, and should be registered before any world is
+ * stepped. Registering is thread safe: worlds being stepped meanwhile keep using the
+ * previous table until they next look a kernel up.
+ * </p>
+ */
+public abstract class CollisionKernel {
+	
+	/** The shape type of particles that don't collide with anything. */
+	public static final int NONE = -1;
+	/** The shape type of RectangleParticles. */
+	public static final int RECTANGLE = 0;
+	/** The shape type of CircleParticles. */
+	public static final int CIRCLE = 1;
+	
+	// replaced as a whole, never modified once published
+	private static volatile KernelTable table;
+	
+	static {
+		table = new KernelTable(2);
+		register(RECTANGLE, RECTANGLE, new OBBvsOBBKernel());
+		register(CIRCLE, CIRCLE, new CirclevsCircleKernel());
+		register(RECTANGLE, CIRCLE, new OBBvsCircleKernel());
+	}
+	
+	
+	/**
+	 * Returns a new shape type, for use with <code>register()</code> and by 
+	 * particle classes that call <code>setShapeType()</code>.
+	 */
+	public static synchronized int registerShapeType() {
+		KernelTable t = table.withShapeType();
+		table = t;
+		return t.numShapeTypes - 1;
+	}
+	
+	
+	/**
+	 * Returns the number of registered shape types.
+	 */
+	public static int getNumShapeTypes() {
+		return table.numShapeTypes;
+	}
+	
+	
+	/**
+	 * Sets the kernel that tests particles of shape type a against particles of shape
+	 * type b. The kernel is also used for the reverse pair, with its arguments swapped.
+	 */
+	public static synchronized void register(int a, int b, CollisionKernel k) {
+		KernelTable t = table;
+		if (a < 0 || a >= t.numShapeTypes || b < 0 || b >= t.numShapeTypes) {
+			throw new ArgumentError("unknown shape type");
+		}
+		table = t.withKernel(a, b, k);
+	}
+	
+	
+	/**
+	 * @private
+	 * Runs the kernel registered for the shape types of the two particles. Returns 
+	 * false if there is none.
+	 */
+	static boolean dispatch(AbstractParticle objA, AbstractParticle objB) {
+		int ta = objA.getShapeType();
+		int tb = objB.getShapeType();
+		KernelTable t = table;
+		if (ta < 0 || tb < 0 || ta >= t.numShapeTypes || tb >= t.numShapeTypes) return false;
+		
+		CollisionKernel k = t.getKernel(ta, tb);
+		if (k == null) return false;
+		return t.isSwapped(ta, tb) ? k.test(objB, objA) : k.test(objA, objB);
+	}
+	
+	
+	/**
+	 * Tests two particles for collision at their sample positions, and passes any 
+	 * collision on to <code>resolve()</code>. Returns true if they collide.
+	 */
+	protected abstract boolean test(AbstractParticle a, AbstractParticle b);
+	
+	
+	/**
+	 * The position a particle is tested at. This is the current position, or one
+	 * of the positions between the previous and current ones for multisampled 
+	 * particles.
+	 */
+	protected static Vector2D getSamplePosition(AbstractParticle p) {
+		return p.samp;
+	}
+	
+	
+	/**
+	 * Resolves a collision between a and b.
+	 * 
+	 * @param normal The unit collision normal, pointing from b towards a.
+	 * @param depth The penetration depth along the normal.
+	 */
+	protected static void resolve(AbstractParticle a, AbstractParticle b, Vector2D normal, float depth) {
+		CollisionResolver.resolveParticleParticle(a, b, normal, depth);
+	}
+}
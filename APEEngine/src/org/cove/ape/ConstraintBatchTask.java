@@ -0,0 +1,81 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Resolves a range of a constraint batch, splitting it in half until a task holds
+ * no more than one chunk. The constraints of a batch share no particle, so chunks
+ * can run concurrently. The batch is either an array of constraints or a range of
+ * packed SpringBatches.
+ */
+final class ConstraintBatchTask extends RecursiveAction {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final AbstractConstraint[] batch;
+	private final SpringBatches springs;
+	private final int lo;
+	private final int hi;
+	private final int chunkSize;
+	
+	
+	ConstraintBatchTask(AbstractConstraint[] batch, int lo, int hi, int chunkSize) {
+		this.batch = batch;
+		this.springs = null;
+		this.lo = lo;
+		this.hi = hi;
+		this.chunkSize = chunkSize;
+	}
+	
+	
+	ConstraintBatchTask(SpringBatches springs, int lo, int hi, int chunkSize) {
+		this.batch = null;
+		this.springs = springs;
+		this.lo = lo;
+		this.hi = hi;
+		this.chunkSize = chunkSize;
+	}
+	
+	
+	protected void compute() {
+		if (hi - lo <= chunkSize) {
+			if (springs != null) {
+				springs.solveRange(lo, hi);
+				return;
+			}
+			for (int i = lo; i < hi; i++) {
+				batch[i].resolve();
+			}
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		if (springs != null) {
+			invokeAll(new ConstraintBatchTask(springs, lo, mid, chunkSize),
+					  new ConstraintBatchTask(springs, mid, hi, chunkSize));
+			return;
+		}
+		invokeAll(new ConstraintBatchTask(batch, lo, mid, chunkSize),
+				  new ConstraintBatchTask(batch, mid, hi, chunkSize));
+	}
+}
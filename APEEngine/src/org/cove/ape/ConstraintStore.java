@@ -0,0 +1,98 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+/**
+ * Structure of arrays storage for the springs of a packed collection. Each row holds
+ * the slots of both ends in the ParticleStore of the collection, the rest length 
+ * and the stiffness of one SpringConstraint, 16 bytes of solver state instead of 
+ * the spring object and its particles. While a spring has a row, the row is the 
+ * only copy of its rest length and stiffness: the getters and setters of the 
+ * SpringConstraint read and write the row, so changing them doesn't rebuild 
+ * anything, and the values move back into the spring when it loses the row.
+ * 
+ * <p>
+ * The rows are filled by SpringBatches in batch order. Every spring loses its row
+ * whenever the rows are filled again.
+ * </p>
+ */
+final class ConstraintStore {
+	
+	int[] a;
+	int[] b;
+	float[] rest;
+	float[] stiffness;
+	
+	private SpringConstraint[] items;
+	private int count;
+	
+	
+	ConstraintStore() {
+		a = b = new int[0];
+		rest = stiffness = new float[0];
+		items = new SpringConstraint[0];
+	}
+	
+	
+	int size() {
+		return count;
+	}
+	
+	
+	SpringConstraint get(int row) {
+		return items[row];
+	}
+	
+	
+	/**
+	 * Moves every spring out of its row, and makes room for n rows.
+	 */
+	void clear(int n) {
+		for (int i = 0; i < count; i++) {
+			items[i].setStoreRow(null, -1);
+			items[i] = null;
+		}
+		count = 0;
+		
+		if (a.length < n) {
+			a = new int[n];
+			b = new int[n];
+			rest = new float[n];
+			stiffness = new float[n];
+			items = new SpringConstraint[n];
+		}
+	}
+	
+	
+	/**
+	 * Moves a spring whose ends are in the slots a and b of the particle store into 
+	 * a row. Rows are filled in any order, up
+	 * to the size passed to <code>clear()</code>.
+	 */
+	void set(int row, SpringConstraint sc, int a, int b) {
+		items[row] = sc;
+		if (row >= count) count = row + 1;
+		this.a[row] = a;
+		this.b[row] = b;
+		sc.setStoreRow(this, row);
+	}
+}
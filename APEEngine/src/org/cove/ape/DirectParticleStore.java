@@ -0,0 +1,88 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * A ParticleStore that keeps its columns in direct buffers, in native memory that 
+ * the garbage collector never scans or moves. Every column holds 4 bytes per slot,
+ * in native order. The memory is reclaimed along with the buffers once the store 
+ * drops them and they are collected.
+ */
+final class DirectParticleStore extends ParticleStore {
+	
+	private ByteBuffer[] buffers;
+	
+	
+	DirectParticleStore() {
+		allocate(0);
+	}
+	
+	
+	boolean isOffHeap() {
+		return true;
+	}
+	
+	
+	/**
+	 * The bytes of a float or int column.
+	 */
+	ByteBuffer getBuffer(int c) {
+		return buffers[c];
+	}
+	
+	
+	float get(int c, int i) {
+		return buffers[c].getFloat(i << 2);
+	}
+	
+	
+	void put(int c, int i, float v) {
+		buffers[c].putFloat(i << 2, v);
+	}
+	
+	
+	int getFlags(int i) {
+		return buffers[FLAGS].getInt(i << 2);
+	}
+	
+	
+	void setFlags(int i, int f) {
+		buffers[FLAGS].putInt(i << 2, f);
+	}
+	
+	
+	void allocate(int n) {
+		buffers = new ByteBuffer[NUM_COLUMNS];
+		for (int c = 0; c < NUM_COLUMNS; c++) {
+			buffers[c] = ByteBuffer.allocateDirect(n * 4).order(ByteOrder.nativeOrder());
+		}
+	}
+	
+	
+	void integrateColumns(int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2) {
+		kernel.integrate(this, lo, hi, gx, gy, mx, my, damping, dt2);
+	}
+}
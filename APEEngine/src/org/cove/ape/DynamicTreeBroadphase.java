@@ -0,0 +1,539 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.cove.ape.util.ArgumentError;
+
+/**
+ * A broadphase that keeps the particles in a bounding volume hierarchy. Every particle
+ * is a leaf holding a fat bounding box: its own bounds grown by a margin and by the 
+ * distance it moved in the last step. A leaf is only moved in the tree once the 
+ * particle leaves its fat box, and the tree is kept balanced with rotations as leaves
+ * are inserted and removed.
+ * 
+ * <p>
+ * Unlike a uniform grid, the tree does not depend on the size of the particles, which
+ * makes it a good fit for scenes that mix very large and very small particles, such
+ * as long fixed floors under small debris.
+ * </p>
+ */
+public class DynamicTreeBroadphase extends Broadphase {
+	
+	private static final int NULL = -1;
+	
+	// how far ahead of its last displacement the fat box of a moving leaf reaches
+	private static final float DISPLACEMENT_MULTIPLIER = 2;
+	
+	private float _margin;
+	
+	// tree nodes. leaves have no children, and free nodes are chained through parent
+	private float[] nMinX;
+	private float[] nMinY;
+	private float[] nMaxX;
+	private float[] nMaxY;
+	private int[] parent;
+	private int[] child1;
+	private int[] child2;
+	private int[] height;
+	private int root;
+	private int freeList;
+	private int numNodes;
+	
+	// leaf data: the particle, its proxy index in the current check, the check it
+	// was last seen in and its last center
+	private AbstractParticle[] particle;
+	private int[] item;
+	private int[] stamp;
+	private float[] lastX;
+	private float[] lastY;
+	
+	private Map<AbstractParticle, Integer> leafOf;
+	private int currentStamp;
+	
+	// exact bounds of every proxy
+	private float[] minX;
+	private float[] minY;
+	private float[] maxX;
+	private float[] maxY;
+	
+	private int[] stack;
+	private AABB bounds;
+	
+	
+	/**
+	 * Creates a tree with a margin of 2 pixels around every fat box.
+	 */
+	public DynamicTreeBroadphase() {
+		this(2);
+	}
+	
+	
+	/**
+	 * @param margin The distance the fat box of a leaf extends past the bounds of
+	 * its particle.
+	 */
+	public DynamicTreeBroadphase(float margin) {
+		setMargin(margin);
+		
+		root = NULL;
+		freeList = NULL;
+		numNodes = 0;
+		nMinX = nMinY = nMaxX = nMaxY = lastX = lastY = new float[0];
+		parent = child1 = child2 = height = item = stamp = new int[0];
+		particle = new AbstractParticle[0];
+		leafOf = new IdentityHashMap<AbstractParticle, Integer>();
+		
+		minX = minY = maxX = maxY = new float[0];
+		stack = new int[64];
+		bounds = new AABB();
+	}
+	
+	
+	/**
+	 * The distance the fat box of a leaf extends past the bounds of its particle. 
+	 * Larger margins move fewer leaves in the tree, but report more candidate pairs. 
+	 * A new margin applies to leaves as they are next inserted.
+	 */
+	public float getMargin() {
+		return _margin;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setMargin(float m) {
+		if (m < 0) throw new ArgumentError("the margin must not be negative");
+		_margin = m;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	Broadphase copy() {
+		return new DynamicTreeBroadphase(_margin);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void findPairs(List<AbstractParticle> proxies, PairBuffer pairs) {
+		
+		int n = proxies.size();
+		if (minX.length < n) {
+			int cap = Math.max(n, minX.length * 2);
+			minX = new float[cap];
+			minY = new float[cap];
+			maxX = new float[cap];
+			maxY = new float[cap];
+		}
+		currentStamp++;
+		
+		// insert new particles and move the ones that left their fat box
+		for (int i = 0; i < n; i++) {
+			AbstractParticle p = proxies.get(i);
+			p.getBounds(bounds);
+			minX[i] = bounds.minX;
+			minY[i] = bounds.minY;
+			maxX[i] = bounds.maxX;
+			maxY[i] = bounds.maxY;
+			
+			float cx = (bounds.minX + bounds.maxX) * 0.5f;
+			float cy = (bounds.minY + bounds.maxY) * 0.5f;
+			
+			Integer l = leafOf.get(p);
+			int leaf;
+			if (l == null) {
+				leaf = allocateNode();
+				particle[leaf] = p;
+				leafOf.put(p, leaf);
+				setFatBounds(leaf, 0, 0);
+				insertLeaf(leaf);
+			} else {
+				leaf = l;
+				if (nMinX[leaf] > bounds.minX || nMinY[leaf] > bounds.minY ||
+						nMaxX[leaf] < bounds.maxX || nMaxY[leaf] < bounds.maxY) {
+					removeLeaf(leaf);
+					setFatBounds(leaf, cx - lastX[leaf], cy - lastY[leaf]);
+					insertLeaf(leaf);
+				}
+			}
+			lastX[leaf] = cx;
+			lastY[leaf] = cy;
+			item[leaf] = i;
+			stamp[leaf] = currentStamp;
+		}
+		
+		// drop the particles that are no longer passed in
+		if (leafOf.size() > n) {
+			Iterator<Integer> it = leafOf.values().iterator();
+			while (it.hasNext()) {
+				int leaf = it.next();
+				if (stamp[leaf] != currentStamp) {
+					it.remove();
+					removeLeaf(leaf);
+					particle[leaf] = null;
+					freeNode(leaf);
+				}
+			}
+		}
+		
+		// query the tree with the exact bounds of every proxy
+		for (int i = 0; i < n; i++) {
+			query(i, pairs);
+		}
+	}
+	
+	
+	/**
+	 * Reports every proxy with a higher index than i whose exact bounds overlap the 
+	 * ones of i.
+	 */
+	private void query(int i, PairBuffer pairs) {
+		
+		if (root == NULL) return;
+		
+		float x0 = minX[i];
+		float y0 = minY[i];
+		float x1 = maxX[i];
+		float y1 = maxY[i];
+		
+		int top = 0;
+		stack[top++] = root;
+		while (top > 0) {
+			int node = stack[--top];
+			if (nMinX[node] > x1 || nMaxX[node] < x0 || nMinY[node] > y1 || nMaxY[node] < y0) {
+				continue;
+			}
+			if (child1[node] == NULL) {
+				int j = item[node];
+				if (j > i && minX[j] <= x1 && x0 <= maxX[j] && minY[j] <= y1 && y0 <= maxY[j]) {
+					pairs.add(i, j);
+				}
+			} else {
+				if (top + 2 > stack.length) {
+					int[] s = new int[stack.length * 2];
+					System.arraycopy(stack, 0, s, 0, top);
+					stack = s;
+				}
+				stack[top++] = child1[node];
+				stack[top++] = child2[node];
+			}
+		}
+	}
+	
+	
+	/**
+	 * Sets the fat box of a leaf from the bounds last read into <code>bounds</code>,
+	 * extended along the displacement of the particle.
+	 */
+	private void setFatBounds(int leaf, float dx, float dy) {
+		
+		float x0 = bounds.minX - _margin;
+		float y0 = bounds.minY - _margin;
+		float x1 = bounds.maxX + _margin;
+		float y1 = bounds.maxY + _margin;
+		
+		dx *= DISPLACEMENT_MULTIPLIER;
+		dy *= DISPLACEMENT_MULTIPLIER;
+		if (dx < 0) x0 += dx; else x1 += dx;
+		if (dy < 0) y0 += dy; else y1 += dy;
+		
+		nMinX[leaf] = x0;
+		nMinY[leaf] = y0;
+		nMaxX[leaf] = x1;
+		nMaxY[leaf] = y1;
+	}
+	
+	
+	private void insertLeaf(int leaf) {
+		
+		if (root == NULL) {
+			root = leaf;
+			parent[leaf] = NULL;
+			return;
+		}
+		
+		// find the sibling that grows the perimeter of the tree the least
+		float lx0 = nMinX[leaf];
+		float ly0 = nMinY[leaf];
+		float lx1 = nMaxX[leaf];
+		float ly1 = nMaxY[leaf];
+		
+		int index = root;
+		while (child1[index] != NULL) {
+			int c1 = child1[index];
+			int c2 = child2[index];
+			
+			float area = perimeter(nMinX[index], nMinY[index], nMaxX[index], nMaxY[index]);
+			float combined = perimeter(
+					Math.min(lx0, nMinX[index]), Math.min(ly0, nMinY[index]),
+					Math.max(lx1, nMaxX[index]), Math.max(ly1, nMaxY[index]));
+			
+			// cost of pairing the leaf with this node, and of pushing it further down
+			float cost = 2 * combined;
+			float inheritance = 2 * (combined - area);
+			float cost1 = descendCost(c1, lx0, ly0, lx1, ly1) + inheritance;
+			float cost2 = descendCost(c2, lx0, ly0, lx1, ly1) + inheritance;
+			
+			if (cost < cost1 && cost < cost2) break;
+			index = (cost1 < cost2) ? c1 : c2;
+		}
+		int sibling = index;
+		
+		// join the leaf and its sibling under a new parent
+		int oldParent = parent[sibling];
+		int newParent = allocateNode();
+		parent[newParent] = oldParent;
+		height[newParent] = height[sibling] + 1;
+		combine(newParent, leaf, sibling);
+		child1[newParent] = sibling;
+		child2[newParent] = leaf;
+		parent[sibling] = newParent;
+		parent[leaf] = newParent;
+		
+		if (oldParent == NULL) {
+			root = newParent;
+		} else if (child1[oldParent] == sibling) {
+			child1[oldParent] = newParent;
+		} else {
+			child2[oldParent] = newParent;
+		}
+		
+		refit(parent[leaf]);
+	}
+	
+	
+	private void removeLeaf(int leaf) {
+		
+		if (leaf == root) {
+			root = NULL;
+			return;
+		}
+		
+		int p = parent[leaf];
+		int gp = parent[p];
+		int sibling = (child1[p] == leaf) ? child2[p] : child1[p];
+		
+		if (gp == NULL) {
+			root = sibling;
+			parent[sibling] = NULL;
+			freeNode(p);
+			return;
+		}
+		
+		if (child1[gp] == p) {
+			child1[gp] = sibling;
+		} else {
+			child2[gp] = sibling;
+		}
+		parent[sibling] = gp;
+		freeNode(p);
+		refit(gp);
+	}
+	
+	
+	/**
+	 * Walks up from node to the root, balancing every node and updating its bounds
+	 * and height.
+	 */
+	private void refit(int node) {
+		while (node != NULL) {
+			node = balance(node);
+			int c1 = child1[node];
+			int c2 = child2[node];
+			height[node] = 1 + Math.max(height[c1], height[c2]);
+			combine(node, c1, c2);
+			node = parent[node];
+		}
+	}
+	
+	
+	/**
+	 * Rotates the higher child of node a up if the heights of its children differ by
+	 * more than one. Returns the node that took the place of a.
+	 */
+	private int balance(int a) {
+		
+		if (child1[a] == NULL || height[a] < 2) return a;
+		
+		int b = child1[a];
+		int c = child2[a];
+		int diff = height[c] - height[b];
+		
+		if (diff > 1) {
+			// rotate c up
+			int f = child1[c];
+			int g = child2[c];
+			replaceChild(a, c);
+			child1[c] = a;
+			parent[a] = c;
+			
+			if (height[f] > height[g]) {
+				child2[c] = f;
+				child2[a] = g;
+				parent[g] = a;
+			} else {
+				child2[c] = g;
+				child2[a] = f;
+				parent[f] = a;
+			}
+			combine(a, b, child2[a]);
+			combine(c, a, child2[c]);
+			height[a] = 1 + Math.max(height[b], height[child2[a]]);
+			height[c] = 1 + Math.max(height[a], height[child2[c]]);
+			return c;
+		}
+		
+		if (diff < -1) {
+			// rotate b up
+			int d = child1[b];
+			int e = child2[b];
+			replaceChild(a, b);
+			child1[b] = a;
+			parent[a] = b;
+			
+			if (height[d] > height[e]) {
+				child2[b] = d;
+				child1[a] = e;
+				parent[e] = a;
+			} else {
+				child2[b] = e;
+				child1[a] = d;
+				parent[d] = a;
+			}
+			combine(a, c, child1[a]);
+			combine(b, a, child2[b]);
+			height[a] = 1 + Math.max(height[c], height[child1[a]]);
+			height[b] = 1 + Math.max(height[a], height[child2[b]]);
+			return b;
+		}
+		
+		return a;
+	}
+	
+	
+	/**
+	 * Puts node n in the place of its parent a under the parent of a.
+	 */
+	private void replaceChild(int a, int n) {
+		int p = parent[a];
+		parent[n] = p;
+		if (p == NULL) {
+			root = n;
+		} else if (child1[p] == a) {
+			child1[p] = n;
+		} else {
+			child2[p] = n;
+		}
+	}
+	
+	
+	private float descendCost(int c, float x0, float y0, float x1, float y1) {
+		float grown = perimeter(
+				Math.min(x0, nMinX[c]), Math.min(y0, nMinY[c]),
+				Math.max(x1, nMaxX[c]), Math.max(y1, nMaxY[c]));
+		if (child1[c] == NULL) return grown;
+		return grown - perimeter(nMinX[c], nMinY[c], nMaxX[c], nMaxY[c]);
+	}
+	
+	
+	private static float perimeter(float x0, float y0, float x1, float y1) {
+		return 2 * ((x1 - x0) + (y1 - y0));
+	}
+	
+	
+	/**
+	 * Sets the box of node n to the union of the boxes of nodes a and b.
+	 */
+	private void combine(int n, int a, int b) {
+		nMinX[n] = Math.min(nMinX[a], nMinX[b]);
+		nMinY[n] = Math.min(nMinY[a], nMinY[b]);
+		nMaxX[n] = Math.max(nMaxX[a], nMaxX[b]);
+		nMaxY[n] = Math.max(nMaxY[a], nMaxY[b]);
+	}
+	
+	
+	private int allocateNode() {
+		
+		if (freeList == NULL) {
+			if (numNodes == parent.length) growNodes();
+			freeList = numNodes++;
+			parent[freeList] = NULL;
+		}
+		int node = freeList;
+		freeList = parent[node];
+		parent[node] = NULL;
+		child1[node] = NULL;
+		child2[node] = NULL;
+		height[node] = 0;
+		return node;
+	}
+	
+	
+	private void freeNode(int node) {
+		parent[node] = freeList;
+		height[node] = -1;
+		freeList = node;
+	}
+	
+	
+	private void growNodes() {
+		int cap = Math.max(16, parent.length * 2);
+		nMinX = grow(nMinX, cap);
+		nMinY = grow(nMinY, cap);
+		nMaxX = grow(nMaxX, cap);
+		nMaxY = grow(nMaxY, cap);
+		lastX = grow(lastX, cap);
+		lastY = grow(lastY, cap);
+		parent = grow(parent, cap);
+		child1 = grow(child1, cap);
+		child2 = grow(child2, cap);
+		height = grow(height, cap);
+		item = grow(item, cap);
+		stamp = grow(stamp, cap);
+		AbstractParticle[] p = new AbstractParticle[cap];
+		System.arraycopy(particle, 0, p, 0, particle.length);
+		particle = p;
+	}
+	
+	
+	private static float[] grow(float[] a, int cap) {
+		float[] b = new float[cap];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+	
+	
+	private static int[] grow(int[] a, int cap) {
+		int[] b = new int[cap];
+		System.arraycopy(a, 0, b, 0, a.length);
+		return b;
+	}
+}
@@ -1,311 +1,634 @@
-/*
-Copyright (c) 2006, 2007 Alec Cove
-
-Permission is hereby granted, free of charge, to any person obtaining a copy of this 
-software and associated documentation files (the "Software"), to deal in the Software 
-without restriction, including without limitation the rights to use, copy, modify, 
-merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
-permit persons to whom the Software is furnished to do so, subject to the following 
-conditions:
-
-The above copyright notice and this permission notice shall be included in all copies 
-or substantial portions of the Software.
-
-THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
-INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
-PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
-HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
-CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
-OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
-*/
-
-/*
-	TODO:
-	- should all getters for composites, particles, constraints arrays return
-	  a copy of the array? do we want to give the user direct access to it?
-	- addConstraintList, addParticleList
-	- if get particles and get constraints returned members of the Groups composites
-	  (as they probably should, the checkCollision... methods would probably be much
-	  cleaner.
-*/ 
-package org.cove.ape;
-
-import java.util.ArrayList;
-import java.util.List;
-
-/**
- * The Group class can contain Particles, Constraints, and Composites. Groups
- * can be assigned to be checked for collision with other Groups or internally. 
- */ 
-public class Group extends AbstractCollection {
-	
-	private List<Composite> _composites;
-	private List<Group> _collisionList;
-	private boolean _collideInternal;
-	
-	
-	/**
-	 * The Group class is the main organizational class for APE. Once groups are created and populated 
-	 * with particles, constraints, and composites, they are added to the APEngine. Groups may contain
-	 * particles, constraints, and composites. Composites may only contain particles and constraints.
-	 */
-	public Group(boolean collideInternal) {
-		_composites = new ArrayList<Composite>();
-		_collisionList = new ArrayList<Group>();
-		this.setCollideInternal(collideInternal);
-	}
-	
-	public Group()
-	{		
-		_composites = new ArrayList<Composite>();
-		_collisionList = new ArrayList<Group>();
-		this.setCollideInternal(false);
-	}
-	
-	
-	/**
-	 * Initializes every member of this Group by in turn calling 
-	 * each members <code>init()</code> method.
-	 */
-	public void init() {
-		super.init();
-		for (int i = 0; i < _composites.size(); i++) {
-			_composites.get(i).init();			
-		} 
-	}
-	
-
-	/**
-	 * Returns an Array containing all the Composites added to this Group
-	 */
-	public List<Composite> getComposites() {
-		return _composites;
-	}
-	
-	
-	/**
-	 * Adds a Composite to the Group.
-	 * 
-	 * @param c The Composite to be added.
-	 */
-	public void addComposite(Composite c) {
-		_composites.add(c);
-		c.setIsParented(true);
-		if (getIsParented()) 
-			c.init();
-	}
-
-
-	/**
-	 * Removes a Composite from the Group.
-	 * 
-	 * @param c The Composite to be removed.
-	 */
-	public void removeComposite(Composite c) {
-		
-		if ( _composites.remove(c) )
-		{
-			c.setIsParented(false);
-			c.cleanup();
-		}		
-	}
-	
-
-	/**
-	 * Paints all members of this Group. This method is called automatically
-	 * by the APEngine class.
-	 */
-	public void paint() {
-
-		super.paint();
-	
-		int len = _composites.size();
-		for (int i = 0; i < len; i++) {
-			Composite c = _composites.get(i);
-			c.paint();
-		}						
-	}
-
-
-	/**
-	 * Adds an Group instance to be checked for collision against
-	 * this one.
-	 */
-	public void addCollidable(Group g) {
-		 _collisionList.add(g);
-	}
-
-
-	/**
-	 * Removes a Group from the collidable list of this Group.
-	 */
-	public void removeCollidable(Group g) {
-		
-		if ( _collisionList.remove(g) )
-		{
-			; 
-		}		
-	}
-
-
-	/**
-	 * Adds an array of AbstractCollection instances to be checked for collision 
-	 * against this one.
-	 */
-	public void addCollidableList(List<Group> list) {
-		 for (int i = 0; i < list.size(); i++) {
-		 	Group g = list.get(i);
-		 	_collisionList.add(g);
-		 }
-	}
-	
-	
-	/**
-	 * Returns the array of every Group assigned to collide with 
-	 * this Group instance.
-	 */
-	public List<Group> getCollisionList() {
-		return _collisionList;
-	}	
-
-
-	/**
-	 * Returns an array of every particle, constraint, and composite added to the Group.
-	 */
-	public ArrayList getAll() {
-		ArrayList list = new ArrayList();
-		list.addAll(getParticles());
-		list.addAll(getConstraints());
-		list.addAll(getComposites());
-		return list;
-	}	
-
-					
-	/**
-	 * Determines if the members of this Group are checked for
-	 * collision with one another.
-	 */
-	public boolean getCollideInternal() {
-		return _collideInternal;
-	}
-	
-	
-	/**
-	 * @private
-	 */
-	public void setCollideInternal(boolean b) {
-		_collideInternal = b;
-	}
-	
-	
-	/**
-	 * Calls the <code>cleanup()</code> method of every member of this Group.
-	 * The cleanup() method is called automatically when an Group is removed
-	 * from the APEngine.
-	 */
-	public void cleanup() {
-		super.cleanup();
-		for (int i = 0; i < _composites.size(); i++) {
-			_composites.get(i).cleanup();	
-		}
-	}
-	
-			
-	/**
-	 * @private
-	 */
-	void integrate(float dt2) {
-		
-		super.integrate(dt2);
-	
-		int len = _composites.size();
-		for (int i = 0; i < len; i++) {
-			Composite cmp = _composites.get(i);
-			cmp.integrate(dt2);
-		}						
-	}
-	
-	
-	/**
-	 * @private
-	 */
-	void satisfyConstraints() {
-		
-		super.satisfyConstraints();
-	
-		int len = _composites.size();
-		for (int i = 0; i < len; i++) {
-			Composite cmp = _composites.get(i);
-			cmp.satisfyConstraints();
-		}				
-	}
-	
-	
-	/**
-	 * @private
-	 */
-	void checkCollisions() {
-		
-		if (getCollideInternal()) 
-			checkCollisionGroupInternal();
-		
-		int len = _collisionList.size();
-		for (int i = 0; i < len; i++) {
-			Group g = _collisionList.get(i);
-			checkCollisionVsGroup(g);
-		}
-	}
-	
-	
-	private void checkCollisionGroupInternal() {
-		
-		// check collisions not in composites
-		checkInternalCollisions();
-		
-		// for every composite in this Group..
-		int clen = _composites.size();
-		for (int j = 0; j < clen; j++) {
-			
-			Composite ca = _composites.get(j);
-			
-			// .. vs non composite particles and constraints in this group
-			ca.checkCollisionsVsCollection(this);
-			
-			// ...vs every other composite in this Group
-			for (int i = j + 1; i < clen; i++) {
-				Composite cb = _composites.get(i);
-				ca.checkCollisionsVsCollection(cb);
-			}
-		}
-	}
-	
-	
-	private void checkCollisionVsGroup(Group g) {
-		
-		// check particles and constraints not in composites of either group
-		checkCollisionsVsCollection(g);
-		
-		int clen = _composites.size();
-		int gclen = g.getComposites().size();
-		
-		// for every composite in this group..
-		for (int i = 0; i < clen; i++) {
-		
-			// check vs the particles and constraints of g
-			Composite c = _composites.get(i);
-			c.checkCollisionsVsCollection(g);
-			
-			// check vs composites of g
-			for (int j = 0; j < gclen; j++) {
-				Composite gc = g.getComposites().get(j);
-				c.checkCollisionsVsCollection(gc);
-			}
-		}
-		
-		// check particles and constraints of this group vs the composites of g
-		for (int j = 0; j < gclen; j++) {
-			Composite gc = g.getComposites().get(j);	
-			checkCollisionsVsCollection(gc);
-		}
-	}
-}
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+/*
+	TODO:
+	- should all getters for composites, particles, constraints arrays return
+	  a copy of the array? do we want to give the user direct access to it?
+	- if get particles and get constraints returned members of the Groups composites
+	  (as they probably should, the checkCollision... methods would probably be much
+	  cleaner.
+*/ 
+package org.cove.ape;
+
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cove.ape.util.ArgumentError;
+
+/**
+ * The Group class can contain Particles, Constraints, and Composites. Groups
+ * can be assigned to be checked for collision with other Groups or internally. 
+ */ 
+public class Group extends AbstractCollection {
+	
+	/**
+	 * The number of floats <code>exportState()</code> writes for each particle: the x 
+	 * and y position, the x and y velocity and the rotation in radians.
+	 */
+	public static final int STATE_STRIDE = 5;
+	
+	private SlotList<Composite> _composites;
+	private List<Group> _collisionList;
+	private boolean _collideInternal;
+	
+	private Broadphase _broadphase;
+	private BroadphasePass _pass;
+	private List<Group> _collisionPartners;
+	private AABB _totalBounds;
+	
+	
+	/**
+	 * The Group class is the main organizational class for APE. Once groups are created and populated 
+	 * with particles, constraints, and composites, they are added to the APEngine. Groups may contain
+	 * particles, constraints, and composites. Composites may only contain particles and constraints.
+	 */
+	public Group(boolean collideInternal) {
+		_composites = new SlotList<Composite>();
+		_collisionList = new ArrayList<Group>();
+		_collisionPartners = new ArrayList<Group>();
+		_totalBounds = new AABB();
+		_totalBounds.setInfinite();
+		this.setCollideInternal(collideInternal);
+	}
+	
+	public Group()
+	{		
+		_composites = new SlotList<Composite>();
+		_collisionList = new ArrayList<Group>();
+		_collisionPartners = new ArrayList<Group>();
+		_totalBounds = new AABB();
+		_totalBounds.setInfinite();
+		this.setCollideInternal(false);
+	}
+	
+	
+	/**
+	 * Initializes every member of this Group by in turn calling 
+	 * each members <code>init()</code> method.
+	 */
+	public void init() {
+		super.init();
+		for (int i = 0; i < _composites.size(); i++) {
+			_composites.get(i).init();			
+		} 
+	}
+	
+
+	/**
+	 * Returns an Array containing all the Composites added to this Group. Removing a
+	 * Composite moves the last one into its place, so the order changes as Composites
+	 * are removed.
+	 */
+	public List<Composite> getComposites() {
+		return _composites;
+	}
+	
+	
+	/**
+	 * Returns the Composite with the passed handle, or null if it has been removed 
+	 * from this Group.
+	 * 
+	 * @param handle The value of the <code>handle</code> property of the Composite.
+	 */
+	public Composite getComposite(long handle) {
+		return _composites.get(handle);
+	}
+	
+	
+	/**
+	 * Adds a Composite to the Group.
+	 * 
+	 * @param c The Composite to be added.
+	 */
+	public void addComposite(Composite c) {
+		_composites.add(c);
+		c.setGroup(this);
+		c.setWorld(getIsParented() ? getWorld() : null);
+		c.setIsParented(true);
+		c.membersAdded();
+		c.invalidateBounds();
+		if (getIsParented()) 
+			c.init();
+	}
+	
+	
+	/**
+	 * Adds a list of Composites to the Group. The Composites are all appended first,
+	 * and if the Group is already part of a world they are then initialized in a 
+	 * single pass on the calling thread, since initializing creates and draws the 
+	 * sprites of their members.
+	 * 
+	 * @param cs The Composites to be added.
+	 */
+	public void addCompositeList(List<? extends Composite> cs) {
+		
+		int len = cs.size();
+		for (int i = 0; i < len; i++) {
+			Composite c = cs.get(i);
+			_composites.add(c);
+			c.setGroup(this);
+			c.setWorld(getIsParented() ? getWorld() : null);
+			c.setIsParented(true);
+			c.membersAdded();
+			c.invalidateBounds();
+		}
+		if (! getIsParented()) return;
+		
+		for (int i = 0; i < len; i++) {
+			cs.get(i).init();
+		}
+	}
+
+
+	/**
+	 * Removes a Composite from the Group.
+	 * 
+	 * @param c The Composite to be removed.
+	 */
+	public void removeComposite(Composite c) {
+		detachComposite(c);
+	}
+	
+	
+	/**
+	 * Removes a list of Composites from the Group. Each removal takes constant time,
+	 * as with <code>removeComposite()</code>.
+	 * 
+	 * @param cs The Composites to be removed.
+	 */
+	public void removeCompositeList(List<? extends Composite> cs) {
+		int len = cs.size();
+		for (int i = 0; i < len; i++) {
+			detachComposite(cs.get(i));
+		}
+	}
+	
+	
+	/**
+	 * Takes a Composite out of the Composite list. The islands of the world are only
+	 * updated if the Composite had constraints linking it to other Groups.
+	 */
+	private boolean detachComposite(Composite c) {
+		
+		if (! _composites.remove(c)) return false;
+		
+		c.membersRemoved();
+		c.setIsParented(false);
+		c.cleanup();
+		c.setWorld(null);
+		c.setGroup(null);
+		c.releaseStorage();
+		return true;
+	}
+	
+
+	/**
+	 * Paints all members of this Group. This method is called automatically
+	 * by the APEngine class.
+	 */
+	public void paint() {
+
+		super.paint();
+	
+		int len = _composites.size();
+		for (int i = 0; i < len; i++) {
+			Composite c = _composites.get(i);
+			c.paint();
+		}						
+	}
+
+
+	/**
+	 * Adds an Group instance to be checked for collision against
+	 * this one.
+	 */
+	public void addCollidable(Group g) {
+		 _collisionList.add(g);
+		 invalidateTopology();
+	}
+
+
+	/**
+	 * Removes a Group from the collidable list of this Group.
+	 */
+	public void removeCollidable(Group g) {
+		
+		if ( _collisionList.remove(g) )
+		{
+			invalidateTopology(); 
+		}		
+	}
+
+
+	/**
+	 * Adds an array of AbstractCollection instances to be checked for collision 
+	 * against this one.
+	 */
+	public void addCollidableList(List<Group> list) {
+		 for (int i = 0; i < list.size(); i++) {
+		 	Group g = list.get(i);
+		 	_collisionList.add(g);
+		 }
+		 invalidateTopology();
+	}
+	
+	
+	/**
+	 * Returns the array of every Group assigned to collide with 
+	 * this Group instance.
+	 */
+	public List<Group> getCollisionList() {
+		return _collisionList;
+	}	
+
+
+	/**
+	 * Returns the number of particles in this Group and its Composites. This is the 
+	 * number of records <code>exportState()</code> writes.
+	 */
+	public int getNumParticles() {
+		int n = getParticles().size();
+		int len = _composites.size();
+		for (int i = 0; i < len; i++) {
+			n += _composites.get(i).getParticles().size();
+		}
+		return n;
+	}
+	
+	
+	/**
+	 * Writes the state of every particle of this Group and its Composites into out, 
+	 * starting at offset. The particles of the Group come first, then the particles of
+	 * each Composite in the order they were added, each as <code>STATE_STRIDE</code> 
+	 * floats. This lets a renderer or network layer read the whole Group in one pass 
+	 * without creating any objects.
+	 * 
+	 * @returns The number of particles written.
+	 * @throws ArgumentError if out has less than <code>getNumParticles() * STATE_STRIDE</code>
+	 * floats after offset.
+	 */
+	public int exportState(float[] out, int offset) {
+		
+		int n = getNumParticles();
+		if (offset < 0 || out.length - offset < n * STATE_STRIDE) {
+			throw new ArgumentError("out is too small for the state of " + n + " particles");
+		}
+		
+		offset = exportParticles(getParticles(), out, offset);
+		int len = _composites.size();
+		for (int i = 0; i < len; i++) {
+			offset = exportParticles(_composites.get(i).getParticles(), out, offset);
+		}
+		return n;
+	}
+	
+	
+	/**
+	 * Same as <code>exportState(float[], int)</code>, but writes to a FloatBuffer, 
+	 * which may be direct, starting at its position. The position is advanced past
+	 * the written floats.
+	 * 
+	 * @returns The number of particles written.
+	 * @throws ArgumentError if out has less than <code>getNumParticles() * STATE_STRIDE</code>
+	 * floats remaining.
+	 */
+	public int exportState(FloatBuffer out) {
+		
+		int n = getNumParticles();
+		if (out.remaining() < n * STATE_STRIDE) {
+			throw new ArgumentError("out is too small for the state of " + n + " particles");
+		}
+		
+		exportParticles(getParticles(), out);
+		int len = _composites.size();
+		for (int i = 0; i < len; i++) {
+			exportParticles(_composites.get(i).getParticles(), out);
+		}
+		return n;
+	}
+	
+	
+	/**
+	 * Returns an array of every particle, constraint, and composite added to the Group.
+	 */
+	public ArrayList getAll() {
+		ArrayList list = new ArrayList();
+		list.addAll(getParticles());
+		list.addAll(getConstraints());
+		list.addAll(getComposites());
+		return list;
+	}	
+
+					
+	/**
+	 * Determines if the members of this Group are checked for
+	 * collision with one another.
+	 */
+	public boolean getCollideInternal() {
+		return _collideInternal;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setCollideInternal(boolean b) {
+		_collideInternal = b;
+		invalidateTopology();
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	Group getOwnerGroup() {
+		return this;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void setWorld(PhysicsWorld w) {
+		super.setWorld(w);
+		for (int i = 0; i < _composites.size(); i++) {
+			_composites.get(i).setWorld(w);	
+		}
+	}
+	
+	
+	/**
+	 * The broadphase used when this Group is checked for collision, both internally 
+	 * and against the Groups in its collision list. The members of this Group, its 
+	 * Composites and the Groups it collides with are handed to the broadphase, and 
+	 * only the pairs it reports are tested. When null, which is the default, every 
+	 * member is tested against every other one.
+	 * 
+	 * <p>
+	 * The Group runs its own copy of the broadphase, with the same settings, so one 
+	 * instance can be given to several Groups without them sharing state.
+	 * </p>
+	 */
+	public Broadphase getBroadphase() {
+		return _broadphase;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setBroadphase(Broadphase b) {
+		_broadphase = b;
+		_pass = (b == null) ? null : new BroadphasePass(b.copy());
+		invalidateTopology();
+	}
+	
+	
+	/**
+	 * Calls the <code>cleanup()</code> method of every member of this Group.
+	 * The cleanup() method is called automatically when an Group is removed
+	 * from the APEngine.
+	 */
+	public void cleanup() {
+		super.cleanup();
+		for (int i = 0; i < _composites.size(); i++) {
+			_composites.get(i).cleanup();	
+		}
+	}
+	
+			
+	/**
+	 * @private
+	 */
+	void releaseStorage() {
+		super.releaseStorage();
+		
+		int len = _composites.size();
+		for (int i = 0; i < len; i++) {
+			_composites.get(i).releaseStorage();
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void integrate(float dt2) {
+		
+		super.integrate(dt2);
+	
+		int len = _composites.size();
+		for (int i = 0; i < len; i++) {
+			Composite cmp = _composites.get(i);
+			cmp.integrate(dt2);
+		}						
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void satisfyConstraints() {
+		
+		super.satisfyConstraints();
+	
+		int len = _composites.size();
+		for (int i = 0; i < len; i++) {
+			Composite cmp = _composites.get(i);
+			cmp.satisfyConstraints();
+		}				
+	}
+	
+	
+	/**
+	 * @private
+	 * Updates the bounds of this Group and of its Composites, and the box around all 
+	 * of them, margins included.
+	 */
+	void updateBounds() {
+		
+		super.updateBounds();
+		_totalBounds.setEmpty();
+		_totalBounds.add(getBounds());
+		
+		int len = _composites.size();
+		for (int i = 0; i < len; i++) {
+			Composite cmp = _composites.get(i);
+			cmp.updateBounds();
+			_totalBounds.add(cmp.getBounds());
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void invalidateBounds() {
+		super.invalidateBounds();
+		_totalBounds.setInfinite();
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	AABB getTotalBounds() {
+		return _totalBounds;
+	}
+	
+	
+	/**
+	 * @private
+	 * Sets the Groups this Group is checked against by its broadphase. The world 
+	 * assigns each pair of Groups that list each other to only one of the two.
+	 */
+	void setCollisionPartners(List<Group> partners) {
+		_collisionPartners = partners;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void checkCollisionGroupInternal() {
+		
+		// check collisions not in composites
+		checkInternalCollisions();
+		
+		// for every composite in this Group..
+		int clen = _composites.size();
+		for (int j = 0; j < clen; j++) {
+			
+			Composite ca = _composites.get(j);
+			
+			// .. vs non composite particles and constraints in this group
+			ca.checkCollisionsVsCollection(this);
+			
+			// ...vs every other composite in this Group
+			for (int i = j + 1; i < clen; i++) {
+				Composite cb = _composites.get(i);
+				ca.checkCollisionsVsCollection(cb);
+			}
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 * Same as the pairwise checks, but only tests the pairs reported by the broadphase.
+	 * The members of this Group are tagged 0 and the ones of the i-th Group it was 
+	 * assigned to collide with i + 1, so pairs between two other Groups can be skipped.
+	 */
+	void checkCollisionsBroadphase() {
+		
+		int len = _collisionPartners.size();
+		if (! getCollideInternal() && len == 0) return;
+		
+		_pass.clear();
+		_pass.addGroup(this, 0);
+		for (int i = 0; i < len; i++) {
+			_pass.addGroup(_collisionPartners.get(i), i + 1);
+		}
+		_pass.findPairs();
+		
+		int plen = _pass.numPairs();
+		for (int i = 0; i < plen; i++) {
+			int a = _pass.getA(i);
+			int b = _pass.getB(i);
+			int ta = _pass.getTag(a);
+			int tb = _pass.getTag(b);
+			
+			if (ta == 0 && tb == 0) {
+				if (! getCollideInternal() || _pass.sameComposite(a, b)) continue;
+			} else if (ta != 0 && tb != 0) {
+				continue;
+			}
+			_pass.test(a, b);
+		}
+		_pass.flush(getWorld().getBatchedContacts());
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void checkCollisionVsGroup(Group g) {
+		
+		// the two groups are too far apart for any of their members to touch
+		if (! _totalBounds.overlaps(g.getTotalBounds())) return;
+		
+		// check particles and constraints not in composites of either group
+		checkCollisionsVsCollection(g);
+		
+		int clen = _composites.size();
+		int gclen = g.getComposites().size();
+		
+		// for every composite in this group..
+		for (int i = 0; i < clen; i++) {
+		
+			// check vs the particles and constraints of g
+			Composite c = _composites.get(i);
+			c.checkCollisionsVsCollection(g);
+			
+			// check vs composites of g
+			for (int j = 0; j < gclen; j++) {
+				Composite gc = g.getComposites().get(j);
+				c.checkCollisionsVsCollection(gc);
+			}
+		}
+		
+		// check particles and constraints of this group vs the composites of g
+		for (int j = 0; j < gclen; j++) {
+			Composite gc = g.getComposites().get(j);	
+			checkCollisionsVsCollection(gc);
+		}
+	}
+	
+	
+	private static int exportParticles(List<AbstractParticle> ps, float[] out, int offset) {
+		int len = ps.size();
+		for (int i = 0; i < len; i++) {
+			AbstractParticle p = ps.get(i);
+			out[offset] = p.getCurrX();
+			out[offset + 1] = p.getCurrY();
+			out[offset + 2] = p.getVx();
+			out[offset + 3] = p.getVy();
+			out[offset + 4] = p.getRadian();
+			offset += STATE_STRIDE;
+		}
+		return offset;
+	}
+	
+	
+	private static void exportParticles(List<AbstractParticle> ps, FloatBuffer out) {
+		int len = ps.size();
+		for (int i = 0; i < len; i++) {
+			AbstractParticle p = ps.get(i);
+			out.put(p.getCurrX());
+			out.put(p.getCurrY());
+			out.put(p.getVx());
+			out.put(p.getVy());
+			out.put(p.getRadian());
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+/**
+ * A ParticleStore that keeps its columns in plain arrays on the Java heap.
+ */
+final class HeapParticleStore extends ParticleStore {
+	
+	private float[][] arrays;
+	private int[] flags;
+	
+	
+	HeapParticleStore() {
+		allocate(0);
+	}
+	
+	
+	boolean isOffHeap() {
+		return false;
+	}
+	
+	
+	/**
+	 * A float column.
+	 */
+	float[] getArray(int c) {
+		return arrays[c];
+	}
+	
+	
+	/**
+	 * The flags column.
+	 */
+	int[] getFlags() {
+		return flags;
+	}
+	
+	
+	float get(int c, int i) {
+		return arrays[c][i];
+	}
+	
+	
+	void put(int c, int i, float v) {
+		arrays[c][i] = v;
+	}
+	
+	
+	int getFlags(int i) {
+		return flags[i];
+	}
+	
+	
+	void setFlags(int i, int f) {
+		flags[i] = f;
+	}
+	
+	
+	void allocate(int n) {
+		arrays = new float[FLAGS][n];
+		flags = new int[n];
+	}
+	
+	
+	void integrateColumns(int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2) {
+		kernel.integrate(this, lo, hi, gx, gy, mx, my, damping, dt2);
+	}
+}
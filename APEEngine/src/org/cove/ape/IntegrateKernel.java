@@ -0,0 +1,61 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+/**
+ * Runs the Verlet integration step over the columns of a ParticleStore. The scalar
+ * kernel is always available. A kernel using the incubating Vector API is loaded 
+ * instead if it was compiled into the classpath and the 
+ * <code>jdk.incubator.vector</code> module is enabled. Both give the same results.
+ */
+abstract class IntegrateKernel {
+	
+	/**
+	 * Returns the vector kernel if it can be loaded, and the scalar one otherwise.
+	 */
+	static IntegrateKernel load() {
+		try {
+			Class<?> c = Class.forName("org.cove.ape.VectorIntegrateKernel");
+			return (IntegrateKernel) c.getDeclaredConstructor().newInstance();
+		} catch (Throwable t) {
+			// not compiled in, or the module isn't enabled
+			return new ScalarIntegrateKernel();
+		}
+	}
+	
+	
+	/**
+	 * Integrates the slots lo to hi of s that are neither fixed nor custom, applying 
+	 * the world force g, scaled by the inverse mass, and the massless force m, and 
+	 * clears their forces. The last position of every slot that isn't custom is set
+	 * to its position before the step, as <code>update()</code> does.
+	 */
+	abstract void integrate(HeapParticleStore s, int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2);
+	
+	
+	/**
+	 * The same step over the buffers of an off heap store.
+	 */
+	abstract void integrate(DirectParticleStore s, int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2);
+}
@@ -0,0 +1,88 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Integrates a range of particles, splitting it in half until a task holds no more
+ * than one chunk. Verlet integration of a particle only touches that particle, so 
+ * chunks can run concurrently. The range is either of a list of particles or of the
+ * slots of a ParticleStore.
+ */
+final class IntegrateTask extends RecursiveAction {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final List<AbstractParticle> particles;
+	private final ParticleStore store;
+	private final PhysicsWorld world;
+	private final int lo;
+	private final int hi;
+	private final int chunkSize;
+	private final float dt2;
+	
+	
+	IntegrateTask(List<AbstractParticle> particles, int lo, int hi, int chunkSize, float dt2) {
+		this.particles = particles;
+		this.store = null;
+		this.world = null;
+		this.lo = lo;
+		this.hi = hi;
+		this.chunkSize = chunkSize;
+		this.dt2 = dt2;
+	}
+	
+	
+	IntegrateTask(ParticleStore store, PhysicsWorld world, int lo, int hi, int chunkSize, float dt2) {
+		this.particles = null;
+		this.store = store;
+		this.world = world;
+		this.lo = lo;
+		this.hi = hi;
+		this.chunkSize = chunkSize;
+		this.dt2 = dt2;
+	}
+	
+	
+	protected void compute() {
+		if (hi - lo <= chunkSize) {
+			if (store != null) {
+				store.integrate(world, dt2, lo, hi);
+				return;
+			}
+			for (int i = lo; i < hi; i++) {
+				particles.get(i).update(dt2);
+			}
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		if (store != null) {
+			invokeAll(new IntegrateTask(store, world, lo, mid, chunkSize, dt2),
+					  new IntegrateTask(store, world, mid, hi, chunkSize, dt2));
+			return;
+		}
+		invokeAll(new IntegrateTask(particles, lo, mid, chunkSize, dt2),
+				  new IntegrateTask(particles, mid, hi, chunkSize, dt2));
+	}
+}
@@ -0,0 +1,55 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Steps a range of independent Group islands of a PhysicsWorld, splitting the range
+ * in half until each task owns a single island.
+ */
+final class IslandStepTask extends RecursiveAction {
+	
+	private static final long serialVersionUID = 1L;
+	
+	private final PhysicsWorld world;
+	private final int lo;
+	private final int hi;
+	
+	
+	IslandStepTask(PhysicsWorld world, int lo, int hi) {
+		this.world = world;
+		this.lo = lo;
+		this.hi = hi;
+	}
+	
+	
+	protected void compute() {
+		if (hi - lo == 1) {
+			world.stepIsland(lo);
+			return;
+		}
+		int mid = (lo + hi) >>> 1;
+		invokeAll(new IslandStepTask(world, lo, mid),
+				  new IslandStepTask(world, mid, hi));
+	}
+}
@@ -0,0 +1,87 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+/**
+ * An immutable table of the CollisionKernels for every pair of shape types. 
+ * Registering a shape type or a kernel builds a new table, which is then published 
+ * as a whole, so a thread dispatching a test always sees a stride that matches the 
+ * arrays it indexes.
+ */
+final class KernelTable {
+	
+	final int numShapeTypes;
+	
+	// by a * numShapeTypes + b
+	private final CollisionKernel[] kernels;
+	private final boolean[] swapped;
+	
+	
+	KernelTable(int numShapeTypes) {
+		this.numShapeTypes = numShapeTypes;
+		kernels = new CollisionKernel[numShapeTypes * numShapeTypes];
+		swapped = new boolean[numShapeTypes * numShapeTypes];
+	}
+	
+	
+	CollisionKernel getKernel(int a, int b) {
+		return kernels[a * numShapeTypes + b];
+	}
+	
+	
+	boolean isSwapped(int a, int b) {
+		return swapped[a * numShapeTypes + b];
+	}
+	
+	
+	/**
+	 * Returns a copy of this table with room for one more shape type.
+	 */
+	KernelTable withShapeType() {
+		KernelTable t = new KernelTable(numShapeTypes + 1);
+		for (int a = 0; a < numShapeTypes; a++) {
+			for (int b = 0; b < numShapeTypes; b++) {
+				t.kernels[a * t.numShapeTypes + b] = getKernel(a, b);
+				t.swapped[a * t.numShapeTypes + b] = isSwapped(a, b);
+			}
+		}
+		return t;
+	}
+	
+	
+	/**
+	 * Returns a copy of this table with k registered for a vs b, and swapped for
+	 * b vs a.
+	 */
+	KernelTable withKernel(int a, int b, CollisionKernel k) {
+		KernelTable t = new KernelTable(numShapeTypes);
+		System.arraycopy(kernels, 0, t.kernels, 0, kernels.length);
+		System.arraycopy(swapped, 0, t.swapped, 0, swapped.length);
+		t.kernels[a * numShapeTypes + b] = k;
+		t.swapped[a * numShapeTypes + b] = false;
+		if (a != b) {
+			t.kernels[b * numShapeTypes + a] = k;
+			t.swapped[b * numShapeTypes + a] = true;
+		}
+		return t;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+
+/**
+ * A growable list of index pairs, as produced by a Broadphase.
+ */
+final class PairBuffer {
+	
+	private int[] data;
+	private int count;
+	
+	
+	public PairBuffer() {
+		data = new int[64];
+		count = 0;
+	}
+	
+	
+	void add(int a, int b) {
+		if (count * 2 == data.length) {
+			int[] grown = new int[data.length * 2];
+			System.arraycopy(data, 0, grown, 0, data.length);
+			data = grown;
+		}
+		data[count * 2] = a;
+		data[count * 2 + 1] = b;
+		count++;
+	}
+	
+	
+	int getA(int i) {
+		return data[i * 2];
+	}
+	
+	
+	int getB(int i) {
+		return data[i * 2 + 1];
+	}
+	
+	
+	int size() {
+		return count;
+	}
+	
+	
+	void clear() {
+		count = 0;
+	}
+}
@@ -0,0 +1,275 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.List;
+
+/**
+ * Packed columns for the particles of one collection, indexed by the slot of each
+ * particle. While a particle has a slot, the columns are the only copy of its 
+ * position, previous position, forces and last position: the particle reads and 
+ * writes them through its accessors, such as <code>getCurrX()</code>, and an 
+ * IntegrateKernel integrates them in place, with nothing to copy in or out. A 
+ * particle takes its state along when it gets or leaves a slot. The material and 
+ * flags columns are copies, which the particle setters keep up to date.
+ * 
+ * <p>
+ * A HeapParticleStore keeps its columns in plain arrays, a DirectParticleStore in 
+ * direct buffers outside the Java heap. Each implements the column access and 
+ * hands itself to the kernel overload for its own layout, so no loop checks which
+ * one it runs on.
+ * </p>
+ */
+abstract class ParticleStore {
+	
+	/** The particle is fixed and is not integrated. */
+	static final int FIXED = 1;
+	/** The particle is collidable. */
+	static final int COLLIDABLE = 2;
+	/** The particle is integrated by <code>update()</code> instead of the array loop. */
+	static final int CUSTOM = 4;
+	
+	// float columns
+	static final int PX = 0;
+	static final int PY = 1;
+	static final int OX = 2;
+	static final int OY = 3;
+	static final int FX = 4;
+	static final int FY = 5;
+	static final int LX = 6;
+	static final int LY = 7;
+	static final int INV_MASS = 8;
+	static final int ELASTICITY = 9;
+	static final int FRICTION = 10;
+	// the int column, after the float ones
+	static final int FLAGS = 11;
+	static final int NUM_COLUMNS = 12;
+	
+	static final IntegrateKernel kernel = IntegrateKernel.load();
+	
+	private AbstractParticle[] items;
+	private int count;
+	private boolean dirty;
+	private int version;
+	
+	
+	ParticleStore() {
+		items = new AbstractParticle[0];
+		dirty = true;
+	}
+	
+	
+	/**
+	 * Returns a DirectParticleStore if offHeap is true, and a HeapParticleStore 
+	 * otherwise.
+	 */
+	static ParticleStore create(boolean offHeap) {
+		return offHeap ? new DirectParticleStore() : new HeapParticleStore();
+	}
+	
+	
+	abstract boolean isOffHeap();
+	
+	
+	/**
+	 * The value of float column c in slot i.
+	 */
+	abstract float get(int c, int i);
+	
+	
+	/**
+	 * Sets the value of float column c in slot i.
+	 */
+	abstract void put(int c, int i, float v);
+	
+	
+	/**
+	 * The flags of slot i.
+	 */
+	abstract int getFlags(int i);
+	
+	
+	abstract void setFlags(int i, int f);
+	
+	
+	/**
+	 * Replaces the columns with new ones of n slots. The old columns are dropped.
+	 */
+	abstract void allocate(int n);
+	
+	
+	/**
+	 * Runs the kernel over the slots lo to hi.
+	 */
+	abstract void integrateColumns(int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2);
+	
+	
+	int size() {
+		return count;
+	}
+	
+	
+	/**
+	 * Changes every time the slots are reassigned.
+	 */
+	int getVersion() {
+		return version;
+	}
+	
+	
+	/**
+	 * Assigns a slot to every particle of ps and loads their state and material, if
+	 * the slots are out of date: when the store is new or released, or when a 
+	 * particle was added to full columns or removed from a slot other than its own.
+	 * The particles first move out of their old slots, since the columns may be 
+	 * reallocated.
+	 */
+	void sync(List<AbstractParticle> ps) {
+		
+		if (! dirty) return;
+		
+		for (int i = 0; i < count; i++) {
+			if (items[i].getStore() == this) items[i].setStoreSlot(null, -1);
+			items[i] = null;
+		}
+		
+		int len = ps.size();
+		if (items.length < len) {
+			items = new AbstractParticle[Math.max(len, items.length * 2)];
+			allocate(items.length);
+		}
+		
+		for (int i = 0; i < len; i++) {
+			AbstractParticle p = ps.get(i);
+			items[i] = p;
+			p.setStoreSlot(this, i);
+			updateMaterial(i);
+		}
+		count = len;
+		version++;
+		dirty = false;
+	}
+	
+	
+	/**
+	 * Gives a particle appended to the collection the next slot, leaving the other 
+	 * slots as they are. If the slots are already out of date, or the columns are 
+	 * full, the next <code>sync()</code> assigns it one instead.
+	 */
+	void add(AbstractParticle p) {
+		if (dirty || count == items.length) {
+			dirty = true;
+			return;
+		}
+		items[count] = p;
+		p.setStoreSlot(this, count);
+		updateMaterial(count);
+		count++;
+	}
+	
+	
+	/**
+	 * Mirrors the removal of p from slot i of the particle list, which moves the last
+	 * particle into slot i: p takes its state out of the store, and the last particle
+	 * takes its state along into slot i. Returns the slot the last particle came 
+	 * from, or -1 if the slots are out of date and left to the next 
+	 * <code>sync()</code>.
+	 */
+	int remove(AbstractParticle p, int i) {
+		if (p.getStore() == this) p.setStoreSlot(null, -1);
+		if (dirty || i >= count || items[i] != p) {
+			dirty = true;
+			return -1;
+		}
+		
+		int last = --count;
+		if (i != last) {
+			AbstractParticle q = items[last];
+			items[i] = q;
+			q.setStoreSlot(this, i);
+			updateMaterial(i);
+		}
+		items[last] = null;
+		return last;
+	}
+	
+	
+	/**
+	 * Moves every particle out of the store, so the particles hold their own state
+	 * again.
+	 */
+	void clear() {
+		for (int i = 0; i < count; i++) {
+			if (items[i].getStore() == this) items[i].setStoreSlot(null, -1);
+			items[i] = null;
+		}
+		count = 0;
+		dirty = true;
+	}
+	
+	
+	/**
+	 * Clears the store and drops its columns, so the garbage collector can reclaim 
+	 * them, along with the native memory of a DirectParticleStore. The columns are 
+	 * allocated again by the next <code>sync()</code>, if the collection is used 
+	 * again.
+	 */
+	void release() {
+		clear();
+		items = new AbstractParticle[0];
+		allocate(0);
+	}
+	
+	
+	/**
+	 * Reloads the material and flags of the particle in slot i.
+	 */
+	void updateMaterial(int i) {
+		AbstractParticle p = items[i];
+		put(INV_MASS, i, p.getInvMass());
+		put(ELASTICITY, i, p.getElasticity());
+		put(FRICTION, i, p.getFriction());
+		
+		int f = 0;
+		if (p.getFixed()) f |= FIXED;
+		if (p.getCollidable()) f |= COLLIDABLE;
+		if (! p.hasPlainUpdate()) f |= CUSTOM;
+		setFlags(i, f);
+	}
+	
+	
+	/**
+	 * Integrates the particles in the slots lo to hi. The result is the same as 
+	 * calling <code>update()</code> on each of them, which is what is done for the
+	 * custom ones.
+	 */
+	void integrate(PhysicsWorld w, float dt2, int lo, int hi) {
+		
+		for (int i = lo; i < hi; i++) {
+			if ((getFlags(i) & CUSTOM) != 0) items[i].update(dt2);
+		}
+		
+		integrateColumns(lo, hi, w.force.x, w.force.y, 
+				w.masslessForce.x, w.masslessForce.y, w.getDamping(), dt2);
+	}
+}
@@ -0,0 +1,883 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+/*
+TODO:
+- need a removeForces method
+- container should be automatic, but settable
+*/
+
+package org.cove.ape;
+
+
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import flash.display.DisplayObjectContainer;
+
+import org.cove.ape.util.ArgumentError;
+
+/**
+ * An independent simulation. A PhysicsWorld owns its groups, global forces, damping
+ * and iteration counts, so any number of worlds can be created and stepped side by
+ * side -- each on its own thread if needed -- without interfering with one another.
+ * 
+ * <p>
+ * The static <code>APEngine</code> class is a facade over a default PhysicsWorld and 
+ * can still be used when only one simulation is needed.
+ * </p>
+ */
+public final class PhysicsWorld {
+	
+	/**@private */
+	Vector2D force;
+	/**@private */
+	Vector2D masslessForce;
+		
+	private SlotList<Group> groups;
+	private int numGroups;
+	private float timeStep;
+	
+	private float _damping;
+	private DisplayObjectContainer _container;
+	
+	private int _constraintCycles;
+	private int _constraintCollisionCycles;
+	
+	private double _fixedTimeStep;
+	private int _maxSubSteps;
+	private double _accumulator;
+	private float _alpha;
+	
+	private boolean _parallelStep;
+	private boolean _batchedContacts;
+	private ForkJoinPool _pool;
+	private List<List<Group>> _islands;
+	private boolean _topologyDirty;
+	
+	// stamps the ends of the constraints found by each updateTopology(), see particleAdded()
+	private static final AtomicInteger nextLinkStamp = new AtomicInteger();
+	private int _linkStamp;
+	
+	private Broadphase _broadphase;
+	private List<BroadphasePass> _islandPasses;
+	private Map<Group, Integer> _groupIndex;
+	private boolean[] _collisionMatrix;
+	
+	// the collision checks of every island, as pairs of Groups. see compilePairs()
+	private List<Group[]> _islandPairs;
+	
+	
+	/**
+	 * Creates a new world. Particles and constraints become bound to the world when
+	 * their Group is added to it.
+	 * 
+	 * @param dt The delta time value for the world. This parameter can be used -- in 
+	 * conjunction with speed at which <code>step()</code> is called -- to change the speed
+	 * of the simulation. Typical values are 1/3 or 1/4. Lower values result in slower,
+	 * but more accurate simulations, and higher ones result in faster, less accurate ones.
+	 * Note that this only applies to the forces added to particles. If you do not add any
+	 * forces, the <code>dt</code> value won't matter.
+	 */
+	public PhysicsWorld() {
+		this(0.25f);
+	}
+	
+	public PhysicsWorld(float dt) {
+		timeStep = dt * dt;
+		
+		numGroups = 0;
+		groups = new SlotList<Group>();
+	
+		force = new Vector2D(0,0);
+		masslessForce = new Vector2D(0,0);
+		
+		setDamping(1);
+		
+		_constraintCycles = 0;
+		_constraintCollisionCycles = 1;
+		
+		_fixedTimeStep = 1.0 / 60.0;
+		_maxSubSteps = 5;
+		_accumulator = 0;
+		_alpha = 1;
+		
+		_parallelStep = false;
+		_topologyDirty = true;
+	}
+
+
+	/**
+	 * The global damping of this world. Values should be between 0 and 1. Higher numbers
+	 * result in less damping. A value of 1 is no damping. A value of 0 will
+	 * not allow any particles to move. The default is 1.
+	 * 
+	 * <p>
+	 * Damping will slow down your simulation and make it more stable. If you find
+	 * that your sim is "blowing up', try applying more damping. 
+	 * </p>
+	 * 
+	 * @param d The damping value. Values should be >=0 and <=1.
+	 */
+	public float getDamping() {
+		return _damping;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setDamping(float d) {
+		_damping = d;
+	}
+
+
+	/**
+	 * Determines the number of times in a single <code>step()</code> cycle that 
+	 * the constraints have their positions corrected. Increasing this number can result in
+	 * stiffer, more stable configurations of constraints, especially when they are in large
+	 * complex arrangements. The trade off is that the higher you set this number the more 
+	 * performance will suffer.
+	 *
+	 * <p>
+	 * This setting differs from the <code>constraintCollisionCycles</code> property in that it
+	 * only resolves constraints during a <code>step()</code>. The default value
+	 * is 0. Because this property doesn't correct for collisions, you should only use it when
+	 * the collisions of an arrangement of particles and constraints are not an issue. If you 
+	 * do set this value higher than the default of 0, then  <code>constraintCollisionCycles</code>
+	 * should at least be 1, in order to check collisions one time during the 
+	 * <code>step()</code> cycle.
+	 * </p>
+	 */
+	public int getConstraintCycles() {
+		return _constraintCycles;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setConstraintCycles(int numCycles) {
+		_constraintCycles = numCycles;
+	}	
+	
+	
+	/**
+	 * Determines the number of times in a single <code>step()</code> cycle that
+	 * the constraints and particles have their positions corrected. This can greatly increase
+	 * stability and prevent breakthroughs, especially with large complex arrangements of 
+	 * constraints and particles. The larger this number, the more stable the simulation,
+	 * at an expense of performance.
+	 *
+	 * <p> 
+	 * This setting differs from the <code>constraintCycles</code> property in that it
+	 * resolves both constraints and collisions during a <code>step()</code>. 
+	 * The default value is 1.
+	 * </p>
+	 */
+	public int getConstraintCollisionCycles() {
+		return _constraintCollisionCycles;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setConstraintCollisionCycles(int numCycles) {
+		_constraintCollisionCycles = numCycles;
+	}			
+	
+	
+	/**
+	 * The length in seconds of a single simulation step when the world is advanced with
+	 * <code>step(realElapsedSeconds)</code>. The default is 1/60 of a second.
+	 */
+	public double getFixedTimeStep() {
+		return _fixedTimeStep;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setFixedTimeStep(double seconds) {
+		if (seconds <= 0) throw new ArgumentError("fixedTimeStep must be greater than 0");
+		_fixedTimeStep = seconds;
+	}
+	
+	
+	/**
+	 * The maximum number of fixed steps a single call to <code>step(realElapsedSeconds)</code>
+	 * will run. If the host loop falls further behind than this, the remaining time is 
+	 * dropped instead of being caught up later, so a slow frame can not trigger ever longer
+	 * ones. The default is 5.
+	 */
+	public int getMaxSubSteps() {
+		return _maxSubSteps;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setMaxSubSteps(int n) {
+		if (n < 1) throw new ArgumentError("maxSubSteps must be at least 1");
+		_maxSubSteps = n;
+	}
+	
+	
+	/**
+	 * The fraction of a fixed step left in the time accumulator after the last call to
+	 * <code>step(realElapsedSeconds)</code>, in the range 0 to 1. Pass it to the 
+	 * <code>getInterpolated...</code> methods of the particles to render positions between
+	 * the last two simulation steps. After a plain <code>step()</code> the value is 1.
+	 */
+	public float getInterpolationAlpha() {
+		return _alpha;
+	}
+	
+	
+	/**
+	 * Determines if independent Groups are stepped concurrently. Groups are split into
+	 * islands: two Groups are in the same island if either one is in the collision list
+	 * of the other, or if a constraint of one is attached to a particle of the other.
+	 * Each island is integrated, constrained and collided on its own task of the 
+	 * <code>forkJoinPool</code>, while the Groups within an island keep their serial 
+	 * order. The default is false.
+	 */
+	public boolean getParallelStep() {
+		return _parallelStep;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setParallelStep(boolean b) {
+		_parallelStep = b;
+	}
+	
+	
+	/**
+	 * Determines if the circle vs circle pairs reported by a broadphase are tested in
+	 * batches. When true, all such pairs of a collision pass are tested together, 
+	 * with the Vector API when it is available, and the contacts found are then 
+	 * resolved in pair order. Contacts are found from the positions before any of 
+	 * them is resolved, instead of after the ones before them, so results differ 
+	 * slightly. This pays off in scenes with many circles, such as sand or ball pits.
+	 * Multisampled particles are always tested one pair at a time. Only used where a
+	 * broadphase is set, on the world or on a Group. The default is false.
+	 */
+	public boolean getBatchedContacts() {
+		return _batchedContacts;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setBatchedContacts(boolean b) {
+		_batchedContacts = b;
+	}
+	
+	
+	/**
+	 * The pool used for parallel stepping. Defaults to the common pool.
+	 */
+	public ForkJoinPool getForkJoinPool() {
+		return (_pool != null) ? _pool : ForkJoinPool.commonPool();
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setForkJoinPool(ForkJoinPool pool) {
+		_pool = pool;
+	}
+	
+	
+	/**
+	 * The broadphase used for all collision checks of this world. When set, the 
+	 * collidable particles and constraints of every Group are handed to this single 
+	 * broadphase, and only the candidate pairs it reports -- filtered by 
+	 * <code>collideInternal</code> and the collision lists of the Groups -- are tested. 
+	 * This replaces the pairwise loops of the Groups, including any broadphase set on 
+	 * a Group. When null, which is the default, every Group runs its own checks.
+	 */
+	public Broadphase getBroadphase() {
+		return _broadphase;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setBroadphase(Broadphase b) {
+		_broadphase = b;
+		_islandPasses = null;
+		invalidateTopology();
+	}
+	
+	
+	/**
+	 * The container used by the default painting methods of the particles and
+	 * constraints of this world. If you wish to use to the built in painting methods 
+	 * you must set this first.
+	 *
+	 * @param s An instance of the Sprite class that will be used as the container.
+	 */
+	public DisplayObjectContainer getContainer() {
+		return _container;
+	}
+		
+	
+	/**
+	 * @private
+	 */
+	public void setContainer(DisplayObjectContainer d) {
+		_container = d;
+	}
+	
+
+	/**
+	 * Adds a force to all particles in this world. The mass of the particle is taken into 
+	 * account when using this method, so it is useful for adding forces that simulate effects
+	 * like wind. Particles with larger masses will not be affected as greatly as those with
+	 * smaller masses. Note that the size (not to be confused with mass) of the particle has
+	 * no effect on its physical behavior.
+	 * 
+	 * @param f A Vector represeting the force added.
+	 */ 
+	public void addForce(Vector2D v) {
+		force.plusEquals(v);
+	}
+	
+	
+	/**
+	 * Adds a 'massless' force to all particles in this world. The mass of the particle is 
+	 * not taken into account when using this method, so it is useful for adding forces that
+	 * simulate effects like gravity. Particles with larger masses will be affected the same
+	 * as those with smaller masses. Note that the size (not to be confused with mass) of 
+	 * the particle has no effect on its physical behavior.
+	 * 
+	 * @param f A Vector represeting the force added.
+	 */ 	
+	public void addMasslessForce(Vector2D v) {
+		masslessForce.plusEquals(v);
+	}
+		
+		
+	/**
+	 * Adds a Group to this world. Every particle, constraint and composite of the
+	 * Group is bound to this world until the Group is removed.
+	 */
+	public void addGroup(Group g) {
+		groups.add(g);
+		g.setWorld(this);
+		g.setIsParented(true);
+		numGroups++;
+		invalidateTopology();
+		g.init();
+	}
+	
+	
+	/**
+	 * Adds a list of Groups to this world, in order, as <code>addGroup()</code> does.
+	 */
+	public void addGroupList(List<? extends Group> gs) {
+		int len = gs.size();
+		for (int i = 0; i < len; i++) {
+			addGroup(gs.get(i));
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void removeGroup(Group g) {
+		if (detachGroup(g)) invalidateTopology();
+	}
+	
+	
+	/**
+	 * Removes a list of Groups from this world. Each removal takes constant time, and 
+	 * the world is updated once for the whole list.
+	 */
+	public void removeGroupList(List<? extends Group> gs) {
+		boolean removed = false;
+		int len = gs.size();
+		for (int i = 0; i < len; i++) {
+			if (detachGroup(gs.get(i))) removed = true;
+		}
+		if (removed) invalidateTopology();
+	}
+	
+	
+	/**
+	 * Returns the Groups added to this world. Removing a Group moves the last one into
+	 * its place, so the order changes as Groups are removed.
+	 */
+	public List<Group> getGroups() {
+		return groups;
+	}
+	
+	
+	/**
+	 * Returns the Group with the passed handle, or null if it has been removed from 
+	 * this world.
+	 * 
+	 * @param handle The value of the <code>handle</code> property of the Group.
+	 */
+	public Group getGroup(long handle) {
+		return groups.get(handle);
+	}
+	
+	
+	/**
+	 * The main step function of the world. This method should be called
+	 * continously to advance the simulation. The faster this method is 
+	 * called, the faster the simulation will run. Usually you would call
+	 * this in your main program loop. 
+	 */			
+	public void step() {
+		
+		if (_topologyDirty) updateTopology();
+		
+		if (_parallelStep && _islands.size() > 1) {
+			getForkJoinPool().invoke(new IslandStepTask(this, 0, _islands.size()));
+		} else {
+			for (int i = 0; i < _islands.size(); i++) {
+				stepIsland(i);
+			}
+		}
+		_alpha = 1;
+	}
+	
+	
+	/**
+	 * Advances the world by real elapsed time. The time is added to an accumulator 
+	 * and as many steps of <code>fixedTimeStep</code> seconds as fit are run, up to
+	 * <code>maxSubSteps</code>. The simulation speed is then independent of how often
+	 * this method is called. The time left over is exposed as 
+	 * <code>interpolationAlpha</code> for rendering.
+	 * 
+	 * @param realElapsedSeconds The time in seconds since the last call.
+	 * @returns The number of fixed steps that were run.
+	 */
+	public int step(double realElapsedSeconds) {
+		
+		_accumulator += realElapsedSeconds;
+		
+		int n = 0;
+		while (_accumulator >= _fixedTimeStep) {
+			if (n == _maxSubSteps) {
+				// drop the whole steps we can't afford, keep the fraction
+				_accumulator %= _fixedTimeStep;
+				break;
+			}
+			step();
+			_accumulator -= _fixedTimeStep;
+			n++;
+		}
+		
+		_alpha = (float) (_accumulator / _fixedTimeStep);
+		return n;
+	}
+
+
+	/**
+	 * Calling this method will in turn call each particle and constraint's paint method.
+	 * Generally you would call this method after stepping the world in the main program
+	 * cycle.
+	 */			
+	public void paint() {
+		for (int j = 0; j < numGroups; j++) {
+			Group g = groups.get(j);
+			g.paint();
+		}
+	}
+			
+
+	/**
+	 * @private
+	 * Marks the islands out of date. Called when a Group is added or removed, when a 
+	 * collision list or anything else the compiled pairs depend on changes, and when
+	 * a constraint links two Groups.
+	 */
+	void invalidateTopology() {
+		_topologyDirty = true;
+	}
+	
+	
+	/**
+	 * @private
+	 * Called when a particle is added to a collection of this world. A particle only 
+	 * changes the islands if it is at an end of a constraint, which could then link 
+	 * its new Group to the Group of the constraint. Any other particle is added 
+	 * without updating the world.
+	 */
+	void particleAdded(AbstractParticle p) {
+		if (p.getLinkStamp() >= _linkStamp) _topologyDirty = true;
+	}
+	
+	
+	/**
+	 * @private
+	 * Called when a constraint is added to or removed from a collection c of this 
+	 * world. The islands only change if an end of the constraint is owned by another
+	 * Group than c, or by none yet.
+	 */
+	void constraintChanged(AbstractCollection c, AbstractConstraint ac) {
+		SpringConstraint sc = (SpringConstraint)ac;
+		AbstractParticle p1 = sc.getParticle1();
+		AbstractParticle p2 = sc.getParticle2();
+		p1.setLinkStamp(_linkStamp);
+		p2.setLinkStamp(_linkStamp);
+		
+		Group g = c.getOwnerGroup();
+		if (ownerGroupOf(p1) != g || ownerGroupOf(p2) != g) _topologyDirty = true;
+	}
+	
+	
+	/**
+	 * Runs one complete step over the Groups of an island.
+	 */
+	void stepIsland(int i) {
+		stepGroups(_islands.get(i), _islandPairs.get(i), 
+				(_broadphase == null) ? null : _islandPasses.get(i));
+	}
+	
+	
+	/**
+	 * @private
+	 * Returns the index of a Group of this world, as used by <code>isLinked()</code>. 
+	 */
+	int indexOf(Group g) {
+		return _groupIndex.get(g);
+	}
+	
+	
+	/**
+	 * @private
+	 * Returns true if either of the Groups at the two indices is in the collision 
+	 * list of the other.
+	 */
+	boolean isLinked(int a, int b) {
+		return _collisionMatrix[a * numGroups + b];
+	}
+	
+	
+	/**
+	 * Takes a Group out of the Group list, without updating the world.
+	 */
+	private boolean detachGroup(Group g) {
+		
+		if (! groups.remove(g)) return false;
+		
+		g.setIsParented(false);
+		numGroups--;
+		g.cleanup();
+		g.setWorld(null);
+		g.releaseStorage();
+		return true;
+	}
+	
+	
+	/**
+	 * Runs one complete step over the passed Groups.
+	 */
+	private void stepGroups(List<Group> gs, Group[] pairs, BroadphasePass pass) {
+		integrate(gs);
+		for (int j = 0; j < _constraintCycles; j++) {
+			satisfyConstraints(gs);
+		}
+		for (int i = 0; i < _constraintCollisionCycles; i++) {
+			satisfyConstraints(gs);
+			updateBounds(gs);
+			if (pass != null) {
+				pass.run(this, gs);
+			} else {
+				checkCollisions(pairs);
+			}
+		}
+	}
+			
+
+	private void integrate(List<Group> gs) {	
+		int len = gs.size();
+		for (int j = 0; j < len; j++) {
+			Group g = gs.get(j);
+			g.integrate(timeStep);
+		}
+	}
+
+	
+	private void satisfyConstraints(List<Group> gs) {
+		int len = gs.size();
+		for (int j = 0; j < len; j++) {
+			Group g = gs.get(j);
+			g.satisfyConstraints();
+		}
+	}
+
+
+	private void updateBounds(List<Group> gs) {
+		int len = gs.size();
+		for (int j = 0; j < len; j++) {
+			Group g = gs.get(j);
+			g.updateBounds();
+		}
+	}
+	
+	
+	private void checkCollisions(Group[] pairs) {
+		for (int j = 0; j < pairs.length; j += 2) {
+			Group a = pairs[j];
+			Group b = pairs[j + 1];
+			if (b == null) {
+				a.checkCollisionsBroadphase();
+			} else if (a == b) {
+				a.checkCollisionGroupInternal();
+			} else {
+				a.checkCollisionVsGroup(b);
+			}
+		}
+	}
+	
+	
+	/**
+	 * Indexes the Groups, builds the symmetric matrix of Groups that collide with each 
+	 * other, and splits the Groups into islands that share no collision or constraint 
+	 * edges. Groups keep their relative order within an island.
+	 */
+	private void updateTopology() {
+		
+		int[] root = new int[numGroups];
+		boolean[] matrix = new boolean[numGroups * numGroups];
+		Map<Group, Integer> groupIndex = new IdentityHashMap<Group, Integer>();
+		_linkStamp = nextLinkStamp.incrementAndGet();
+		
+		for (int i = 0; i < numGroups; i++) {
+			Group g = groups.get(i);
+			root[i] = i;
+			groupIndex.put(g, i);
+		}
+		
+		for (int i = 0; i < numGroups; i++) {
+			Group g = groups.get(i);
+			
+			// collision edges
+			List<Group> cl = g.getCollisionList();
+			for (int j = 0; j < cl.size(); j++) {
+				Integer k = groupIndex.get(cl.get(j));
+				if (k != null) {
+					union(root, i, k);
+					matrix[i * numGroups + k] = true;
+					matrix[k * numGroups + i] = true;
+				}
+			}
+			
+			// constraints attached to particles of other groups
+			linkConstraints(root, groupIndex, g, i);
+			List<Composite> cmps = g.getComposites();
+			for (int j = 0; j < cmps.size(); j++) {
+				linkConstraints(root, groupIndex, cmps.get(j), i);
+			}
+		}
+		
+		List<List<Group>> islands = new ArrayList<List<Group>>();
+		int[] islandOf = new int[numGroups];
+		for (int i = 0; i < numGroups; i++) {
+			int r = find(root, i);
+			if (r == i) {
+				islandOf[i] = islands.size();
+				islands.add(new ArrayList<Group>());
+			}
+		}
+		for (int i = 0; i < numGroups; i++) {
+			islands.get(islandOf[find(root, i)]).add(groups.get(i));
+		}
+		
+		if (_broadphase != null) _islandPasses = keepPasses(islands);
+		
+		_islands = islands;
+		_groupIndex = groupIndex;
+		_collisionMatrix = matrix;
+		_islandPairs = compilePairs(islandOf, root, islands.size());
+		_topologyDirty = false;
+	}
+	
+	
+	/**
+	 * Hands the broadphase passes of the previous islands on to the new ones, keyed by
+	 * the first Group of each island, so that the sorted axes or trees they hold survive
+	 * the rebuild. Only an island that did not exist before gets a fresh copy of the 
+	 * world broadphase.
+	 */
+	private List<BroadphasePass> keepPasses(List<List<Group>> islands) {
+		
+		Map<Group, BroadphasePass> old = new IdentityHashMap<Group, BroadphasePass>();
+		if (_islandPasses != null) {
+			for (int i = 0; i < _islandPasses.size(); i++) {
+				old.put(_islands.get(i).get(0), _islandPasses.get(i));
+			}
+		}
+		
+		List<BroadphasePass> passes = new ArrayList<BroadphasePass>(islands.size());
+		for (int i = 0; i < islands.size(); i++) {
+			BroadphasePass pass = old.remove(islands.get(i).get(0));
+			if (pass == null) pass = new BroadphasePass(_broadphase.copy());
+			passes.add(pass);
+		}
+		return passes;
+	}
+	
+	
+	/**
+	 * Compiles the collision checks of every island into a flat list of Group pairs, 
+	 * so that two Groups listing each other with <code>addCollidable()</code> are only
+	 * checked once per cycle. A pair (g, g) checks g internally, and (g, null) runs the
+	 * broadphase of g over its internal and assigned pairs. A Group with a broadphase 
+	 * takes the pairs it lists before any other Group can, so they are culled by it. 
+	 * Otherwise a pair goes to the first Group that lists it, in the order Groups were 
+	 * added.
+	 */
+	private List<Group[]> compilePairs(int[] islandOf, int[] root, int numIslands) {
+		
+		boolean[] claimed = new boolean[numGroups * numGroups];
+		List<List<Group>> partners = new ArrayList<List<Group>>();
+		for (int i = 0; i < numGroups; i++) {
+			Group g = groups.get(i);
+			List<Group> assigned = new ArrayList<Group>();
+			partners.add(assigned);
+			if (g.getBroadphase() != null) claimPairs(g, i, claimed, assigned);
+		}
+		for (int i = 0; i < numGroups; i++) {
+			Group g = groups.get(i);
+			if (g.getBroadphase() == null) claimPairs(g, i, claimed, partners.get(i));
+		}
+		
+		List<List<Group>> pairs = new ArrayList<List<Group>>();
+		for (int i = 0; i < numIslands; i++) {
+			pairs.add(new ArrayList<Group>());
+		}
+		for (int i = 0; i < numGroups; i++) {
+			Group g = groups.get(i);
+			List<Group> assigned = partners.get(i);
+			List<Group> out = pairs.get(islandOf[find(root, i)]);
+			
+			if (g.getBroadphase() != null) {
+				g.setCollisionPartners(assigned);
+				if (g.getCollideInternal() || assigned.size() > 0) {
+					out.add(g);
+					out.add(null);
+				}
+				continue;
+			}
+			if (g.getCollideInternal()) {
+				out.add(g);
+				out.add(g);
+			}
+			for (int j = 0; j < assigned.size(); j++) {
+				out.add(g);
+				out.add(assigned.get(j));
+			}
+		}
+		
+		List<Group[]> compiled = new ArrayList<Group[]>();
+		for (int i = 0; i < numIslands; i++) {
+			compiled.add(pairs.get(i).toArray(new Group[pairs.get(i).size()]));
+		}
+		return compiled;
+	}
+	
+	
+	/**
+	 * Assigns to g every Group in its collision list that is not yet paired with it.
+	 */
+	private void claimPairs(Group g, int i, boolean[] claimed, List<Group> assigned) {
+		List<Group> cl = g.getCollisionList();
+		for (int j = 0; j < cl.size(); j++) {
+			Integer k = _groupIndex.get(cl.get(j));
+			if (k == null || k == i || claimed[i * numGroups + k]) continue;
+			claimed[i * numGroups + k] = true;
+			claimed[k * numGroups + i] = true;
+			assigned.add(cl.get(j));
+		}
+	}
+	
+	
+	/**
+	 * Joins the island of Group i with the Groups owning the ends of the constraints
+	 * of c, and stamps those ends so that adding them to another collection later 
+	 * updates the islands.
+	 */
+	private void linkConstraints(
+			int[] root, Map<Group, Integer> groupIndex, AbstractCollection c, int i) {
+		
+		List<AbstractConstraint> cs = c.getConstraints();
+		for (int j = 0; j < cs.size(); j++) {
+			SpringConstraint sc = (SpringConstraint)cs.get(j);
+			AbstractParticle p1 = sc.getParticle1();
+			AbstractParticle p2 = sc.getParticle2();
+			p1.setLinkStamp(_linkStamp);
+			p2.setLinkStamp(_linkStamp);
+			
+			Integer k1 = groupIndex.get(ownerGroupOf(p1));
+			Integer k2 = groupIndex.get(ownerGroupOf(p2));
+			if (k1 != null) union(root, i, k1);
+			if (k2 != null) union(root, i, k2);
+		}
+	}
+	
+	
+	/**
+	 * The Group owning p, directly or through a Composite, or null.
+	 */
+	private static Group ownerGroupOf(AbstractParticle p) {
+		AbstractCollection c = p.getOwner();
+		return (c == null) ? null : c.getOwnerGroup();
+	}
+	
+	
+	private static int find(int[] root, int i) {
+		while (root[i] != i) {
+			root[i] = root[root[i]];
+			i = root[i];
+		}
+		return i;
+	}
+	
+	
+	private static void union(int[] root, int a, int b) {
+		int ra = find(root, a);
+		int rb = find(root, b);
+		// keep the lowest index as root so islands are numbered in Group order
+		if (ra < rb) root[rb] = ra;
+		else if (rb < ra) root[ra] = rb;
+	}
+}
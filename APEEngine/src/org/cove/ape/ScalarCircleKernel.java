@@ -0,0 +1,94 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+/**
+ * The CircleKernel that tests one pair at a time.
+ */
+final class ScalarCircleKernel extends CircleKernel {
+	
+	
+	void test(CircleBatch batch, int lo, int hi) {
+		testRange(batch, lo, hi);
+	}
+	
+	
+	/**
+	 * The scalar loop, also used by the vector kernel for the pairs left over after 
+	 * the last full vector.
+	 */
+	static void testRange(CircleBatch batch, int lo, int hi) {
+		
+		int[] a = batch.a;
+		int[] b = batch.b;
+		float[] px = batch.px;
+		float[] py = batch.py;
+		float[] radius = batch.radius;
+		float[] nx = batch.nx;
+		float[] ny = batch.ny;
+		float[] depth = batch.depth;
+		
+		for (int i = lo; i < hi; i++) {
+			int ia = a[i];
+			int ib = b[i];
+			float ax = px[ia];
+			float ay = py[ia];
+			float ra = radius[ia];
+			float bx = px[ib];
+			float by = py[ib];
+			float rb = radius[ib];
+			
+			depth[i] = 0;
+			if (! overlaps(ax, ra, bx, rb) || ! overlaps(ay, ra, by, rb)) continue;
+			
+			float dx = ax - bx;
+			float dy = ay - by;
+			float mag = (float)Math.sqrt(dx * dx + dy * dy);
+			float d = (ra + rb) - mag;
+			if (d <= 0) continue;
+			
+			if (MathUtil.equal(mag, 0)) mag = 0.0001f;
+			nx[i] = dx / mag;
+			ny[i] = dy / mag;
+			depth[i] = d;
+		}
+	}
+	
+	
+	/**
+	 * The interval test of <code>testCirclevsCircle()</code> along one axis: the 
+	 * intervals overlap, and by more than the tolerance of <code>MathUtil.equal()</code>.
+	 */
+	private static boolean overlaps(float ca, float ra, float cb, float rb) {
+		
+		float minA = ca - ra;
+		float maxA = ca + ra;
+		float minB = cb - rb;
+		float maxB = cb + rb;
+		if (maxA < minB || maxB < minA) return false;
+		
+		float lenA = maxB - minA;
+		float lenB = minB - maxA;
+		float d = (Math.abs(lenA) < Math.abs(lenB)) ? lenA : lenB;
+		return ! MathUtil.equal(d, 0);
+	}
+}
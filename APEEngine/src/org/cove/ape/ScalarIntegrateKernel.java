@@ -0,0 +1,123 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.nio.ByteBuffer;
+
+final class ScalarIntegrateKernel extends IntegrateKernel {
+	
+	
+	void integrate(HeapParticleStore s, int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2) {
+		integrateArrays(s, lo, hi, gx, gy, mx, my, damping, dt2);
+	}
+	
+	
+	void integrate(DirectParticleStore s, int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2) {
+		integrateBuffers(s, lo, hi, gx, gy, mx, my, damping, dt2);
+	}
+	
+	
+	/**
+	 * The scalar loop over a heap store, also used by the vector kernel for the 
+	 * slots left over after the last full vector.
+	 */
+	static void integrateArrays(HeapParticleStore s, int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2) {
+		
+		float[] px = s.getArray(ParticleStore.PX);
+		float[] py = s.getArray(ParticleStore.PY);
+		float[] ox = s.getArray(ParticleStore.OX);
+		float[] oy = s.getArray(ParticleStore.OY);
+		float[] fx = s.getArray(ParticleStore.FX);
+		float[] fy = s.getArray(ParticleStore.FY);
+		float[] lx = s.getArray(ParticleStore.LX);
+		float[] ly = s.getArray(ParticleStore.LY);
+		float[] invMass = s.getArray(ParticleStore.INV_MASS);
+		int[] flags = s.getFlags();
+		
+		for (int i = lo; i < hi; i++) {
+			int f = flags[i];
+			if ((f & ParticleStore.CUSTOM) != 0) continue;
+			
+			float x = px[i];
+			float y = py[i];
+			lx[i] = x;
+			ly[i] = y;
+			if ((f & ParticleStore.FIXED) != 0) continue;
+			
+			float im = invMass[i];
+			float ax = (fx[i] + gx * im + mx) * dt2;
+			float ay = (fy[i] + gy * im + my) * dt2;
+			
+			px[i] = x + (x - ox[i] + ax) * damping;
+			py[i] = y + (y - oy[i] + ay) * damping;
+			ox[i] = x;
+			oy[i] = y;
+			fx[i] = 0;
+			fy[i] = 0;
+		}
+	}
+	
+	
+	/**
+	 * The scalar loop over an off heap store.
+	 */
+	static void integrateBuffers(DirectParticleStore s, int lo, int hi, 
+			float gx, float gy, float mx, float my, float damping, float dt2) {
+		
+		ByteBuffer px = s.getBuffer(ParticleStore.PX);
+		ByteBuffer py = s.getBuffer(ParticleStore.PY);
+		ByteBuffer ox = s.getBuffer(ParticleStore.OX);
+		ByteBuffer oy = s.getBuffer(ParticleStore.OY);
+		ByteBuffer fx = s.getBuffer(ParticleStore.FX);
+		ByteBuffer fy = s.getBuffer(ParticleStore.FY);
+		ByteBuffer lx = s.getBuffer(ParticleStore.LX);
+		ByteBuffer ly = s.getBuffer(ParticleStore.LY);
+		ByteBuffer invMass = s.getBuffer(ParticleStore.INV_MASS);
+		ByteBuffer flags = s.getBuffer(ParticleStore.FLAGS);
+		
+		for (int i = lo; i < hi; i++) {
+			int o = i << 2;
+			int f = flags.getInt(o);
+			if ((f & ParticleStore.CUSTOM) != 0) continue;
+			
+			float x = px.getFloat(o);
+			float y = py.getFloat(o);
+			lx.putFloat(o, x);
+			ly.putFloat(o, y);
+			if ((f & ParticleStore.FIXED) != 0) continue;
+			
+			float im = invMass.getFloat(o);
+			float ax = (fx.getFloat(o) + gx * im + mx) * dt2;
+			float ay = (fy.getFloat(o) + gy * im + my) * dt2;
+			
+			px.putFloat(o, x + (x - ox.getFloat(o) + ax) * damping);
+			py.putFloat(o, y + (y - oy.getFloat(o) + ay) * damping);
+			ox.putFloat(o, x);
+			oy.putFloat(o, y);
+			fx.putFloat(o, 0);
+			fy.putFloat(o, 0);
+		}
+	}
+}
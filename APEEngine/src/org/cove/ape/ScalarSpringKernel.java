@@ -0,0 +1,73 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+/**
+ * The SpringKernel that resolves one spring at a time, as 
+ * <code>SpringConstraint.resolve()</code> does.
+ */
+final class ScalarSpringKernel extends SpringKernel {
+	
+	
+	void solve(SpringBatches b, int lo, int hi) {
+		solveRange(b, lo, hi);
+	}
+	
+	
+	/**
+	 * The scalar loop, also used by the vector kernel for the springs left over after
+	 * the last full vector.
+	 */
+	static void solveRange(SpringBatches sb, int lo, int hi) {
+		
+		ConstraintStore s = sb.springs;
+		int[] a = s.a;
+		int[] b = s.b;
+		float[] rest = s.rest;
+		float[] stiffness = s.stiffness;
+		float[] px = sb.px;
+		float[] py = sb.py;
+		float[] invMass = sb.invMass;
+		
+		for (int i = lo; i < hi; i++) {
+			int p1 = a[i];
+			int p2 = b[i];
+			float im1 = invMass[p1];
+			float im2 = invMass[p2];
+			float ims = im1 + im2;
+			if (ims == 0) continue;
+			
+			float dx = px[p1] - px[p2];
+			float dy = py[p1] - py[p2];
+			float len = (float)Math.sqrt(dx * dx + dy * dy);
+			float diff = (len - rest[i]) / (len * ims);
+			float k = diff * stiffness[i];
+			float mx = dx * k;
+			float my = dy * k;
+			
+			px[p1] -= mx * im1;
+			py[p1] -= my * im1;
+			px[p2] += mx * im2;
+			py[p2] += my * im2;
+		}
+	}
+}
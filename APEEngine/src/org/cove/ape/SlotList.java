@@ -0,0 +1,247 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A List that removes its elements in constant time. Every element knows its slot, 
+ * so it is found without a search, and removing it moves the last element into its 
+ * slot instead of shifting the ones after it. The order of the elements therefore 
+ * changes when an element other than the last is removed.
+ * 
+ * <p>
+ * Every element also gets a handle, which stays the same while the element is in the
+ * list, whatever its slot. A handle is an index into a table of slots in the low 32 
+ * bits and the generation of that index in the high 32 bits. The generation changes 
+ * when the element is removed, so <code>get(long)</code> returns null for the 
+ * handles of removed elements instead of the element that reused the index.
+ * </p>
+ * 
+ * <p>
+ * An element should only be in one SlotList at a time. If it is in several, its 
+ * slot and handle are the ones of the last list it was added to, and the other 
+ * lists fall back to a search to find it.
+ * </p>
+ */
+final class SlotList<T extends Slotted> extends AbstractList<T> implements RandomAccess {
+	
+	/** The handle of an element that isn't in a list. */
+	static final long NO_HANDLE = -1;
+	
+	private Object[] items;
+	private int size;
+	
+	// handle index of the element in each slot
+	private int[] handleAt;
+	
+	// slot of each handle index, or the next free index for free ones
+	private int[] slotOf;
+	private int[] generation;
+	private int numHandles;
+	private int freeHandle;
+	
+	
+	SlotList() {
+		items = new Object[8];
+		handleAt = new int[8];
+		slotOf = new int[8];
+		generation = new int[8];
+		freeHandle = -1;
+	}
+	
+	
+	public int size() {
+		return size;
+	}
+	
+	
+	@SuppressWarnings("unchecked")
+	public T get(int i) {
+		if (i < 0 || i >= size) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		return (T) items[i];
+	}
+	
+	
+	/**
+	 * Returns the element with the passed handle, or null if it was removed.
+	 */
+	@SuppressWarnings("unchecked")
+	T get(long handle) {
+		int h = (int) handle;
+		if (h < 0 || h >= numHandles || generation[h] != (int) (handle >>> 32)) return null;
+		return (T) items[slotOf[h]];
+	}
+	
+	
+	public boolean add(T e) {
+		ensureCapacity(size + 1);
+		put(size, e);
+		size++;
+		modCount++;
+		return true;
+	}
+	
+	
+	/**
+	 * Inserts an element, shifting the ones after it. Unlike removal this takes linear
+	 * time, unless the element is added at the end.
+	 */
+	public void add(int i, T e) {
+		if (i < 0 || i > size) throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		ensureCapacity(size + 1);
+		for (int j = size; j > i; j--) move(j - 1, j);
+		put(i, e);
+		size++;
+		modCount++;
+	}
+	
+	
+	/**
+	 * Replaces the element in a slot. The new element gets a new handle.
+	 */
+	public T set(int i, T e) {
+		T old = get(i);
+		release(i, old);
+		put(i, e);
+		return old;
+	}
+	
+	
+	/**
+	 * Removes the element in a slot, and moves the last element into it.
+	 */
+	public T remove(int i) {
+		T old = get(i);
+		release(i, old);
+		int last = size - 1;
+		if (i != last) move(last, i);
+		items[last] = null;
+		size--;
+		modCount++;
+		return old;
+	}
+	
+	
+	public boolean remove(Object o) {
+		int i = indexOf(o);
+		if (i < 0) return false;
+		remove(i);
+		return true;
+	}
+	
+	
+	public int indexOf(Object o) {
+		if (o instanceof Slotted) {
+			int i = ((Slotted) o).getSlot();
+			if (i >= 0 && i < size && items[i] == o) return i;
+		}
+		for (int i = 0; i < size; i++) {
+			if (o == null ? items[i] == null : o.equals(items[i])) return i;
+		}
+		return -1;
+	}
+	
+	
+	public boolean contains(Object o) {
+		return indexOf(o) >= 0;
+	}
+	
+	
+	public void clear() {
+		while (size > 0) remove(size - 1);
+	}
+	
+	
+	/**
+	 * Puts an element into a free slot and gives it a handle.
+	 */
+	private void put(int i, T e) {
+		
+		int h = freeHandle;
+		if (h >= 0) {
+			freeHandle = slotOf[h];
+		} else {
+			if (numHandles == slotOf.length) {
+				slotOf = grow(slotOf, numHandles * 2);
+				generation = grow(generation, numHandles * 2);
+			}
+			h = numHandles++;
+			generation[h] = 1;
+		}
+		
+		items[i] = e;
+		handleAt[i] = h;
+		slotOf[h] = i;
+		e.setSlot(i);
+		e.setHandle(handleOf(h));
+	}
+	
+	
+	/**
+	 * Frees the handle of the element in a slot.
+	 */
+	private void release(int i, T e) {
+		int h = handleAt[i];
+		if (e.getHandle() == handleOf(h)) {
+			e.setSlot(-1);
+			e.setHandle(NO_HANDLE);
+		}
+		generation[h]++;
+		slotOf[h] = freeHandle;
+		freeHandle = h;
+	}
+	
+	
+	private void move(int from, int to) {
+		@SuppressWarnings("unchecked")
+		T e = (T) items[from];
+		int h = handleAt[from];
+		items[to] = e;
+		handleAt[to] = h;
+		slotOf[h] = to;
+		if (e.getHandle() == handleOf(h)) e.setSlot(to);
+	}
+	
+	
+	private long handleOf(int h) {
+		return ((long) generation[h] << 32) | h;
+	}
+	
+	
+	private void ensureCapacity(int n) {
+		if (n <= items.length) return;
+		int len = Math.max(n, items.length * 2);
+		Object[] o = new Object[len];
+		System.arraycopy(items, 0, o, 0, size);
+		items = o;
+		handleAt = grow(handleAt, len);
+	}
+	
+	
+	private static int[] grow(int[] v, int n) {
+		int[] g = new int[n];
+		System.arraycopy(v, 0, g, 0, v.length);
+		return g;
+	}
+}
@@ -0,0 +1,237 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.List;
+
+import org.cove.ape.util.ArgumentError;
+
+/**
+ * A broadphase that hashes the bounding boxes of the particles into a uniform grid.
+ * Only particles that share a grid cell are reported as candidate pairs, which makes
+ * dense scenes of similarly sized particles roughly linear in the particle count. 
+ * The grid is rebuilt on every collision check.
+ * 
+ * <p>
+ * The cell size should be close to the size of the typical particle. Particles 
+ * covering more than <code>MAX_CELLS</code> cells, such as large floors, are kept
+ * out of the grid and paired with every other particle instead.
+ * </p>
+ */
+public class SpatialHashBroadphase extends Broadphase {
+	
+	/**
+	 * The number of cells a particle may cover before it is kept out of the grid.
+	 */
+	public static final int MAX_CELLS = 64;
+	
+	private float _cellSize;
+	private float invCellSize;
+	
+	private AABB bounds;
+	
+	// bounds and cell range of every proxy
+	private float[] minX;
+	private float[] minY;
+	private float[] maxX;
+	private float[] maxY;
+	private int[] cellMinX;
+	private int[] cellMinY;
+	private int[] cellMaxX;
+	private int[] cellMaxY;
+	
+	// proxies too large for the grid
+	private int[] oversized;
+	private boolean[] isOversized;
+	private int numOversized;
+	
+	// hash table of cell entries, chained through entryNext
+	private int[] buckets;
+	private int[] entryCellX;
+	private int[] entryCellY;
+	private int[] entryProxy;
+	private int[] entryNext;
+	private int numEntries;
+	
+	
+	/**
+	 * @param cellSize The width and height of a grid cell.
+	 */
+	public SpatialHashBroadphase(float cellSize) {
+		setCellSize(cellSize);
+		bounds = new AABB();
+		minX = minY = maxX = maxY = new float[0];
+		cellMinX = cellMinY = cellMaxX = cellMaxY = oversized = new int[0];
+		isOversized = new boolean[0];
+		buckets = entryCellX = entryCellY = entryProxy = entryNext = new int[0];
+	}
+	
+	
+	/**
+	 * The width and height of a grid cell. 
+	 */
+	public float getCellSize() {
+		return _cellSize;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setCellSize(float s) {
+		if (s <= 0) throw new ArgumentError("cellSize must be greater than 0");
+		_cellSize = s;
+		invCellSize = 1 / s;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	Broadphase copy() {
+		return new SpatialHashBroadphase(_cellSize);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void findPairs(List<AbstractParticle> proxies, PairBuffer pairs) {
+		
+		int n = proxies.size();
+		ensureProxyCapacity(n);
+		
+		// find the cell range of every proxy and count the entries needed
+		int total = 0;
+		numOversized = 0;
+		for (int i = 0; i < n; i++) {
+			proxies.get(i).getBounds(bounds);
+			minX[i] = bounds.minX;
+			minY[i] = bounds.minY;
+			maxX[i] = bounds.maxX;
+			maxY[i] = bounds.maxY;
+			cellMinX[i] = (int) Math.floor(bounds.minX * invCellSize);
+			cellMinY[i] = (int) Math.floor(bounds.minY * invCellSize);
+			cellMaxX[i] = (int) Math.floor(bounds.maxX * invCellSize);
+			cellMaxY[i] = (int) Math.floor(bounds.maxY * invCellSize);
+			
+			long cells = (long)(cellMaxX[i] - cellMinX[i] + 1) * (cellMaxY[i] - cellMinY[i] + 1);
+			isOversized[i] = cells > MAX_CELLS;
+			if (isOversized[i]) {
+				oversized[numOversized++] = i;
+			} else {
+				total += (int) cells;
+			}
+		}
+		
+		ensureEntryCapacity(total);
+		numEntries = 0;
+		int mask = buckets.length - 1;
+		for (int i = 0; i < buckets.length; i++) buckets[i] = -1;
+		
+		// hash every proxy into the cells it covers
+		for (int i = 0; i < n; i++) {
+			if (isOversized[i]) continue;
+			for (int cx = cellMinX[i]; cx <= cellMaxX[i]; cx++) {
+				for (int cy = cellMinY[i]; cy <= cellMaxY[i]; cy++) {
+					int h = hash(cx, cy) & mask;
+					int e = numEntries++;
+					entryCellX[e] = cx;
+					entryCellY[e] = cy;
+					entryProxy[e] = i;
+					entryNext[e] = buckets[h];
+					buckets[h] = e;
+				}
+			}
+		}
+		
+		// pair the proxies that share a cell. a pair sharing several cells is only
+		// reported from the cell at the minimum corner of their overlap.
+		for (int b = 0; b < buckets.length; b++) {
+			for (int e1 = buckets[b]; e1 != -1; e1 = entryNext[e1]) {
+				int cx = entryCellX[e1];
+				int cy = entryCellY[e1];
+				int i = entryProxy[e1];
+				for (int e2 = entryNext[e1]; e2 != -1; e2 = entryNext[e2]) {
+					if (entryCellX[e2] != cx || entryCellY[e2] != cy) continue;
+					int j = entryProxy[e2];
+					if (cx != Math.max(cellMinX[i], cellMinX[j])) continue;
+					if (cy != Math.max(cellMinY[i], cellMinY[j])) continue;
+					if (! overlaps(i, j)) continue;
+					if (i < j) pairs.add(i, j);
+					else pairs.add(j, i);
+				}
+			}
+		}
+		
+		// oversized proxies against everything else
+		for (int o = 0; o < numOversized; o++) {
+			int i = oversized[o];
+			for (int j = 0; j < n; j++) {
+				if (j == i || (j < i && isOversized[j])) continue;
+				if (! overlaps(i, j)) continue;
+				if (i < j) pairs.add(i, j);
+				else pairs.add(j, i);
+			}
+		}
+	}
+	
+	
+	private boolean overlaps(int i, int j) {
+		return minX[i] <= maxX[j] && minX[j] <= maxX[i] && minY[i] <= maxY[j] && minY[j] <= maxY[i];
+	}
+	
+	
+	private static int hash(int cx, int cy) {
+		return (cx * 73856093) ^ (cy * 19349663);
+	}
+	
+	
+	private void ensureProxyCapacity(int n) {
+		if (cellMinX.length >= n) return;
+		int size = Math.max(n, cellMinX.length * 2);
+		minX = new float[size];
+		minY = new float[size];
+		maxX = new float[size];
+		maxY = new float[size];
+		cellMinX = new int[size];
+		cellMinY = new int[size];
+		cellMaxX = new int[size];
+		cellMaxY = new int[size];
+		oversized = new int[size];
+		isOversized = new boolean[size];
+	}
+	
+	
+	private void ensureEntryCapacity(int n) {
+		if (entryProxy.length < n) {
+			int size = Math.max(n, entryProxy.length * 2);
+			entryCellX = new int[size];
+			entryCellY = new int[size];
+			entryProxy = new int[size];
+			entryNext = new int[size];
+		}
+		int b = 16;
+		while (b < n * 2) b <<= 1;
+		if (buckets.length < b) buckets = new int[b];
+	}
+}
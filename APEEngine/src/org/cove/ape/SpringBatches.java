@@ -0,0 +1,296 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The springs of a packed collection, colored into batches that share no particle 
+ * and kept in the rows of a ConstraintStore, one batch after the other. The rows 
+ * hold the slots of the ends in the ParticleStore, and every constraint cycle runs 
+ * a SpringKernel over each batch, directly on the position and inverse mass columns
+ * of a heap store. The columns of an off heap store are buffers, which the kernels 
+ * can't index, so for those the particles the springs touch are copied into arrays
+ * by slot and back after the batches. Particles no spring touches are not copied.
+ * 
+ * <p>
+ * Only plain SpringConstraints with both ends in the store are batched. Any other 
+ * constraint is resolved through <code>resolve()</code> after the batches.
+ * </p>
+ */
+final class SpringBatches {
+	
+	private static final SpringKernel kernel = SpringKernel.load();
+	
+	// marks of the slots no spring touches, and of the ones not colored yet
+	private static final int UNTOUCHED = -2;
+	private static final int TOUCHED = -1;
+	
+	// springs, in batch order
+	final ConstraintStore springs;
+	
+	// batch i holds the springs batchStart[i] to batchStart[i + 1]
+	private int[] batchStart;
+	private int numBatches;
+	
+	private AbstractConstraint[] others;
+	private int numOthers;
+	
+	// the store slots of the particles the springs touch
+	private int[] slots;
+	private int numSlots;
+	
+	// build scratch: the last color of each slot, and the springs not colored yet
+	private int[] mark;
+	private int[] pending;
+	
+	// the columns the kernels run on, indexed by slot
+	float[] px;
+	float[] py;
+	float[] invMass;
+	
+	// copies of the columns of an off heap store, only valid in slots[]
+	private float[] copyX;
+	private float[] copyY;
+	private float[] copyInvMass;
+	
+	private int storeVersion;
+	private int storeSize;
+	private boolean dirty;
+	
+	
+	SpringBatches() {
+		springs = new ConstraintStore();
+		batchStart = new int[1];
+		others = new AbstractConstraint[0];
+		slots = mark = pending = new int[0];
+		px = py = invMass = new float[0];
+		copyX = copyY = copyInvMass = new float[0];
+		dirty = true;
+	}
+	
+	
+	/**
+	 * Marks the batches out of date, so they are built again before the next cycle,
+	 * and detaches the springs from their rows.
+	 */
+	void invalidate() {
+		dirty = true;
+		springs.clear(0);
+	}
+	
+	
+	/**
+	 * Called after the particle in slot i was removed from the store and the one in 
+	 * slot last moved into it. The batches are only built again if a spring touched
+	 * either slot. A last of -1 means the store is out of date, and its next version
+	 * rebuilds them anyway.
+	 */
+	void slotsMoved(int i, int last) {
+		if (last >= 0 && (touched(i) || touched(last))) invalidate();
+	}
+	
+	
+	private boolean touched(int slot) {
+		return slot < storeSize && mark[slot] != UNTOUCHED;
+	}
+	
+	
+	/**
+	 * Resolves the constraints cs once. The slots of s must be in sync.
+	 */
+	void solve(List<AbstractConstraint> cs, ParticleStore s, AbstractCollection c) {
+		
+		if (dirty || storeVersion != s.getVersion()) build(cs, s);
+		
+		DirectParticleStore direct = null;
+		if (s.isOffHeap()) {
+			direct = (DirectParticleStore)s;
+			copyIn(direct);
+		} else {
+			HeapParticleStore heap = (HeapParticleStore)s;
+			px = heap.getArray(ParticleStore.PX);
+			py = heap.getArray(ParticleStore.PY);
+			invMass = heap.getArray(ParticleStore.INV_MASS);
+		}
+		
+		int chunkSize = c.getChunkSize();
+		for (int i = 0; i < numBatches; i++) {
+			int lo = batchStart[i];
+			int hi = batchStart[i + 1];
+			if (c.getParallel() && hi - lo > chunkSize) {
+				c.getWorld().getForkJoinPool().invoke(
+						new ConstraintBatchTask(this, lo, hi, chunkSize));
+			} else {
+				kernel.solve(this, lo, hi);
+			}
+		}
+		
+		if (direct != null) copyOut(direct);
+		
+		for (int i = 0; i < numOthers; i++) {
+			others[i].resolve();
+		}
+	}
+	
+	
+	/**
+	 * Copies the position and inverse mass of the particles the springs touch out of
+	 * the buffers of an off heap store.
+	 */
+	private void copyIn(DirectParticleStore s) {
+		
+		ByteBuffer x = s.getBuffer(ParticleStore.PX);
+		ByteBuffer y = s.getBuffer(ParticleStore.PY);
+		ByteBuffer im = s.getBuffer(ParticleStore.INV_MASS);
+		
+		int n = numSlots;
+		for (int j = 0; j < n; j++) {
+			int i = slots[j];
+			int o = i << 2;
+			copyX[i] = x.getFloat(o);
+			copyY[i] = y.getFloat(o);
+			copyInvMass[i] = im.getFloat(o);
+		}
+		px = copyX;
+		py = copyY;
+		invMass = copyInvMass;
+	}
+	
+	
+	/**
+	 * Writes the positions copied by <code>copyIn()</code> back to the store.
+	 */
+	private void copyOut(DirectParticleStore s) {
+		
+		ByteBuffer x = s.getBuffer(ParticleStore.PX);
+		ByteBuffer y = s.getBuffer(ParticleStore.PY);
+		
+		int n = numSlots;
+		for (int j = 0; j < n; j++) {
+			int i = slots[j];
+			int o = i << 2;
+			x.putFloat(o, copyX[i]);
+			y.putFloat(o, copyY[i]);
+		}
+	}
+	
+	
+	/**
+	 * Runs the kernel over the springs lo to hi of one batch.
+	 */
+	void solveRange(int lo, int hi) {
+		kernel.solve(this, lo, hi);
+	}
+	
+	
+	/**
+	 * Greedily colors the springs so that no two springs of the same color share a
+	 * slot, with the same result as the constraint batches of parallel collections,
+	 * and lists the slots they touch. Each color is filled in one pass over the 
+	 * springs left from the pass before, taking every spring whose slots haven't 
+	 * been marked with that color yet, so one int per slot replaces a set of colors.
+	 * The scratch arrays are kept from one build to the next.
+	 */
+	private void build(List<AbstractConstraint> cs, ParticleStore s) {
+		
+		int len = cs.size();
+		springs.clear(len);
+		if (others.length < len) {
+			others = new AbstractConstraint[len];
+			pending = new int[len];
+			batchStart = new int[len + 1];
+		}
+		
+		int n = s.size();
+		if (mark.length < n) {
+			mark = new int[n];
+			slots = new int[n];
+		}
+		Arrays.fill(mark, 0, n, UNTOUCHED);
+		numSlots = 0;
+		numOthers = 0;
+		int numPending = 0;
+		
+		for (int i = 0; i < len; i++) {
+			AbstractConstraint ac = cs.get(i);
+			if (ac.getClass() != SpringConstraint.class) {
+				others[numOthers++] = ac;
+				continue;
+			}
+			SpringConstraint sc = (SpringConstraint)ac;
+			if (sc.getParticle1().getStore() != s || sc.getParticle2().getStore() != s) {
+				others[numOthers++] = ac;
+				continue;
+			}
+			touch(sc.getParticle1().getStoreSlot());
+			touch(sc.getParticle2().getStoreSlot());
+			pending[numPending++] = i;
+		}
+		
+		int row = 0;
+		numBatches = 0;
+		batchStart[0] = 0;
+		while (numPending > 0) {
+			int k = numBatches;
+			int left = 0;
+			for (int j = 0; j < numPending; j++) {
+				SpringConstraint sc = (SpringConstraint)cs.get(pending[j]);
+				int a = sc.getParticle1().getStoreSlot();
+				int b = sc.getParticle2().getStoreSlot();
+				if (mark[a] == k || mark[b] == k) {
+					pending[left++] = pending[j];
+					continue;
+				}
+				mark[a] = k;
+				mark[b] = k;
+				springs.set(row++, sc, a, b);
+			}
+			numPending = left;
+			batchStart[++numBatches] = row;
+		}
+		
+		if (s.isOffHeap() && copyX.length < n) {
+			copyX = new float[n];
+			copyY = new float[n];
+			copyInvMass = new float[n];
+		}
+		
+		for (int i = numOthers; i < others.length; i++) others[i] = null;
+		storeVersion = s.getVersion();
+		storeSize = n;
+		dirty = false;
+	}
+	
+	
+	/**
+	 * Adds a slot to slots[] the first time it is seen.
+	 */
+	private void touch(int slot) {
+		if (mark[slot] == UNTOUCHED) {
+			mark[slot] = TOUCHED;
+			slots[numSlots++] = slot;
+		}
+	}
+}
@@ -1,391 +1,590 @@
-/*
-Copyright (c) 2006, 2007 Alec Cove
-
-Permission is hereby granted, free of charge, to any person obtaining a copy of this 
-software and associated documentation files (the "Software"), to deal in the Software 
-without restriction, including without limitation the rights to use, copy, modify, 
-merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
-permit persons to whom the Software is furnished to do so, subject to the following 
-conditions:
-
-The above copyright notice and this permission notice shall be included in all copies 
-or substantial portions of the Software.
-
-THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
-INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
-PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
-HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
-CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
-OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
-*/
-
-/*
-	TODO:
-	- tearable, tearLength
-	- consider breaking the collidable (vs non collidable) functionality into another class
-	- get/set collidable, currently it is only get
-	- see if radian, angle, and center can be more efficient
-	- do we need a scaleToLength for non collidable?
-	- resolveCycles
-*/
-package org.cove.ape;
-
-
-import flash.display.Sprite;
-
-import org.cove.ape.util.ArgumentError;
-
-import flash.display.DisplayObject;
-
-/**
- * A Spring-like constraint that connects two particles
- */
-public class SpringConstraint extends AbstractConstraint {
-	
-	private AbstractParticle p1;
-	private AbstractParticle p2;	
-
-	private float _restLength;
-	private boolean _collidable;
-	private SpringConstraintParticle _scp;
-	
-	/**
-	 * @param p1 The first particle this constraint is connected to.
-	 * @param p2 The second particle this constraint is connected to.
-	 * @param stiffness The strength of the spring. Valid values are between 0 and 1. Lower values
-	 * result in softer springs. Higher values result in stiffer, stronger springs.
-	 * @param collidable Determines if the constraint will be checked for collision
-	 * @param rectHeight If the constraint is collidable, the height of the collidable area
-	 * can be set in pixels. The height is perpendicular to the two attached particles.
-	 * @param rectScale If the constraint is collidable, the scale of the collidable area
-	 * can be set in value from 0 to 1. The scale is percentage of the distance between 
-	 * the the two attached particles.
-	 * @param scaleToLength If the constraint is collidable and this value is true, the 
-	 * collidable area will scale based on changes in the distance of the two particles. 
-	 */
-	public SpringConstraint(
-			AbstractParticle p1, 
-			AbstractParticle p2, 
-			float stiffness,
-			boolean collidable,
-			float rectHeight,
-			float rectScale,
-			boolean scaleToLength) {
-		
-		super(stiffness);
-		
-		this.p1 = p1;
-		this.p2 = p2;
-		checkParticlesLocation();
-		
-		_restLength = getCurrLength();
-		setCollidable(collidable, rectHeight, rectScale, scaleToLength);
-	}
-	
-	public SpringConstraint(
-			AbstractParticle p1, 
-			AbstractParticle p2)
-	{
-		super(0.5f);
-		
-		this.p1 = p1;
-		this.p2 = p2;
-		checkParticlesLocation();
-		
-		_restLength = getCurrLength();
-		setCollidable(false, 1.0f, 1.0f, false);		
-	}
-	
-	
-	/**
-	 * The rotational value created by the positions of the two particles attached to this
-	 * SpringConstraint. You can use this property to in your own painting methods, along with the 
-	 * <code>center</code> property. 
-	 * 
-	 * @returns A Number representing the rotation of this SpringConstraint in radians
-	 */			
-	public float getRadian() {
-		Vector2D d = getDelta();
-		return (float) Math.atan2(d.y, d.x);
-	}
-	
-	
-	/**
-	 * The rotational value created by the positions of the two particles attached to this
-	 * SpringConstraint. You can use this property to in your own painting methods, along with the 
-	 * <code>center</code> property. 
-	 * 
-	 * @returns A Number representing the rotation of this SpringConstraint in degrees
-	 */					
-	public float getAngle() {
-		return getRadian() * MathUtil.ONE_EIGHTY_OVER_PI;
-	}
-	
-			
-	/**
-	 * The center position created by the relative positions of the two particles attached to this
-	 * SpringConstraint. You can use this property to in your own painting methods, along with the 
-	 * rotation property.
-	 * 
-	 * @returns A Vector representing the center of this SpringConstraint
-	 */			
-	public Vector2D getCenter() {
-		return (p1.curr.plus(p2.curr)).divEquals(2);
-	}
-	
-	
-	/**
-	 * If the <code>collidable</code> property is true, you can set the scale of the collidible area
-	 * between the two attached particles. Valid values are from 0 to 1. If you set the value to 1, then
-	 * the collision area will extend all the way to the two attached particles. Setting the value lower
-	 * will result in an collision area that spans a percentage of that distance. Setting the value
-	 * higher will cause the collision rectangle to extend past the two end particles.
-	 */		 	
-	public void setRectScale(float s) {
-		if (getScp() == null) return;
-		getScp().setRectScale( s );
-	}
-	
-	
-	/**
-	 * @private
-	 */			
-	public float getRectScale() {
-		return getScp().getRectScale();
-	}
-	
-	
-	/**
-	 * Returns the length of the SpringConstraint, the distance between its two 
-	 * attached particles.
-	 */ 
-	public float getCurrLength() {
-		return p1.curr.distance(p2.curr);
-	}
-	
-	
-	/**
-	 * If the <code>collidable</code> property is true, you can set the height of the 
-	 * collidible rectangle between the two attached particles. Valid values are greater 
-	 * than 0. If you set the value to 10, then the collision rect will be 10 pixels high.
-	 * The height is perpendicular to the line connecting the two particles
-	 */	 
-	public float getRectHeight() {
-		return getScp().getRectHeight();
-	}
-	
-	
-	/**
-	 * @private
-	 */	
-	public void setRectHeight(float h) {
-		if (getScp() == null) return;
-		getScp().setRectHeight( h );
-	}			
-	
-		
-	/**
-	 * The <code>restLength</code> property sets the length of SpringConstraint. This value will be
-	 * the distance between the two particles unless their position is altered by external forces. 
-	 * The SpringConstraint will always try to keep the particles this distance apart. Values must 
-	 * be > 0.
-	 */			
-	public float getRestLength() {
-		return _restLength;
-	}
-	
-	
-	/**
-	 * @private
-	 */	
-	public void setRestLength(float r) {
-		if (r <= 0) throw new ArgumentError("restLength must be greater than 0");
-		_restLength = r;
-	}
-	
-		
-	/**
-	 * Determines if the area between the two particles is tested for collision. If this value is on
-	 * you can set the <code>rectHeight</code> and <code>rectScale</code> properties 
-	 * to alter the dimensions of the collidable area.
-	 */			
-	public boolean getCollidable() {
-		return _collidable;
-	}
-	
-	
-	/**
-	 * For cases when the SpringConstraint is <code>collidable</code> and only one of the
-	 * two end particles are fixed. This value will dispose of collisions near the
-	 * fixed particle, to correct for situations where the collision could never be
-	 * resolved. Values must be between 0.0 and 1.0.
-	 */	
-	public float getFixedEndLimit() {
-		return getScp().getFixedEndLimit();
-	}	
-			
-			
-	/**
-	 * @private
-	 */	
-	public void setFixedEndLimit(float f) {
-		if (getScp() == null) return;
-		getScp().setFixedEndLimit(f);
-	}
-	
-				
-	/**
-	 *
-	 */		
-	public void setCollidable(boolean b, float rectHeight, 
-			float rectScale, boolean scaleToLength) {
-		
-		_collidable = b;
-		_scp = null;
-		
-		if (_collidable) {
-			_scp = new SpringConstraintParticle(p1, p2, this, rectHeight, rectScale, scaleToLength);			
-		}
-	}
-	
-	public void setCollidable(boolean b, float rectHeight, 
-			float rectScale)
-	{
-		this.setCollidable(b, rectHeight, rectScale, false);
-	}
-	
-	
-	/**
-	 * Returns true if the passed particle is one of the two particles attached to this SpringConstraint.
-	 */		
-	public boolean isConnectedTo(AbstractParticle p) {
-		return (p == p1 || p == p2);
-	}
-	
-	
-	/**
-	 * Returns true if both connected particle's <code>fixed</code> property is true.
-	 */
-	public boolean getFixed() {
-		return (p1.getFixed() && p2.getFixed());
-	}
-	
-	
-	/**
-	 * Sets up the visual representation of this SpringContraint. This method is called 
-	 * automatically when an instance of this SpringContraint's parent Group is added to 
-	 * the APEngine, when  this SpringContraint's Composite is added to a Group, or this 
-	 * SpringContraint is added to a Composite or Group.
-	 */			
-	public void init() {	
-		cleanup();
-		if (getCollidable()) {
-			getScp().init();
-		} else if (displayObject != null) {
-			initDisplay();
-		}
-		paint();
-	}
-	
-			
-	/**
-	 * The default painting method for this constraint. This method is called automatically
-	 * by the <code>APEngine.paint()</code> method. If you want to define your own custom painting
-	 * method, then create a subclass of this class and override <code>paint()</code>.
-	 */			
-	public void paint() {
-		
-		if (getCollidable()) {
-			getScp().paint();
-		} else if (displayObject != null) {
-			Vector2D c = getCenter();
-			getSprite().x = c.x; 
-			getSprite().y = c.y;
-			getSprite().rotation = getAngle();
-		} else {
-			getSprite().graphics.clear();
-			getSprite().graphics.lineStyle(lineThickness, lineColor, lineAlpha);
-			getSprite().graphics.moveTo(p1.getPx(), p1.getPy());
-			getSprite().graphics.lineTo(p2.getPx(), p2.getPy());	
-		}
-	}
-	
-	
-	/**
-	 * Assigns a DisplayObject to be used when painting this constraint.
-	 */ 
-	public void setDisplay(DisplayObject d, float offsetX, 
-			float offsetY, float rotation) {
-		
-		if (getCollidable()) {
-			getScp().setDisplay(d, offsetX, offsetY, rotation);
-		} else {
-			displayObject = d;
-			displayObjectRotation = rotation;
-			displayObjectOffset = new Vector2D(offsetX, offsetY);
-		}
-	}
-	
-	public void setDisplay(DisplayObject d)
-	{
-		this.setDisplay(d, 0, 0, 0);
-	}
-	
-	
-	/**
-	 * @private
-	 */
-	void initDisplay() {
-		if (getCollidable()) {
-			getScp().initDisplay();
-		} else {
-			displayObject.x = displayObjectOffset.x;
-			displayObject.y = displayObjectOffset.y;
-			displayObject.rotation = displayObjectRotation;
-			getSprite().addChild(displayObject);
-		}
-	}
-	
-						
-	/**
-	 * @private
-	 */		
-	Vector2D getDelta() {
-		return p1.curr.minus(p2.curr);
-	}		
-
-
-	/**
-	 * @private
-	 */		
-	SpringConstraintParticle getScp() {
-		return _scp;
-	}
-	
-	
-	/**
-	 * @private
-	 */			
-	void resolve() {
-		
-		if (p1.getFixed() && p2.getFixed()) return;
-		
-		float deltaLength = getCurrLength();			
-		float diff = (deltaLength - getRestLength()) / (deltaLength * (p1.getInvMass() + p2.getInvMass()));
-		Vector2D dmds = getDelta().mult(diff * getStiffness());
-	
-		p1.curr.minusEquals(dmds.mult(p1.getInvMass()));
-		p2.curr.plusEquals (dmds.mult(p2.getInvMass()));
-	}
-	
-	
-	/**
-	 * if the two particles are at the same location offset slightly
-	 */
-	private void checkParticlesLocation() {
-		if (p1.curr.x == p2.curr.x && p1.curr.y == p2.curr.y) {
-			p2.curr.x += 0.0001;
-		}
-	}
-}
-
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+/*
+	TODO:
+	- tearable, tearLength
+	- consider breaking the collidable (vs non collidable) functionality into another class
+	- get/set collidable, currently it is only get
+	- see if radian, angle, and center can be more efficient
+	- do we need a scaleToLength for non collidable?
+	- resolveCycles
+*/
+package org.cove.ape;
+
+
+import flash.display.Sprite;
+
+import org.cove.ape.util.ArgumentError;
+
+import flash.display.DisplayObject;
+
+/**
+ * A Spring-like constraint that connects two particles
+ */
+public class SpringConstraint extends AbstractConstraint {
+	
+	private AbstractParticle p1;
+	private AbstractParticle p2;	
+
+	private float _restLength;
+	private boolean _collidable;
+	private SpringConstraintParticle _scp;
+	
+	private int _collisionCategory;
+	private int _collisionMask;
+	private int _collisionGroup;
+	
+	private ConstraintStore _store;
+	private int _storeRow;
+	
+	/**
+	 * @param p1 The first particle this constraint is connected to.
+	 * @param p2 The second particle this constraint is connected to.
+	 * @param stiffness The strength of the spring. Valid values are between 0 and 1. Lower values
+	 * result in softer springs. Higher values result in stiffer, stronger springs.
+	 * @param collidable Determines if the constraint will be checked for collision
+	 * @param rectHeight If the constraint is collidable, the height of the collidable area
+	 * can be set in pixels. The height is perpendicular to the two attached particles.
+	 * @param rectScale If the constraint is collidable, the scale of the collidable area
+	 * can be set in value from 0 to 1. The scale is percentage of the distance between 
+	 * the the two attached particles.
+	 * @param scaleToLength If the constraint is collidable and this value is true, the 
+	 * collidable area will scale based on changes in the distance of the two particles. 
+	 */
+	public SpringConstraint(
+			AbstractParticle p1, 
+			AbstractParticle p2, 
+			float stiffness,
+			boolean collidable,
+			float rectHeight,
+			float rectScale,
+			boolean scaleToLength) {
+		
+		super(stiffness);
+		
+		this.p1 = p1;
+		this.p2 = p2;
+		checkParticlesLocation();
+		
+		_restLength = getCurrLength();
+		_collisionCategory = 1;
+		_collisionMask = 0xFFFFFFFF;
+		_collisionGroup = 0;
+		setCollidable(collidable, rectHeight, rectScale, scaleToLength);
+	}
+	
+	public SpringConstraint(
+			AbstractParticle p1, 
+			AbstractParticle p2)
+	{
+		super(0.5f);
+		
+		this.p1 = p1;
+		this.p2 = p2;
+		checkParticlesLocation();
+		
+		_restLength = getCurrLength();
+		_collisionCategory = 1;
+		_collisionMask = 0xFFFFFFFF;
+		_collisionGroup = 0;
+		setCollidable(false, 1.0f, 1.0f, false);		
+	}
+	
+	
+	/**
+	 * The rotational value created by the positions of the two particles attached to this
+	 * SpringConstraint. You can use this property to in your own painting methods, along with the 
+	 * <code>center</code> property. 
+	 * 
+	 * @returns A Number representing the rotation of this SpringConstraint in radians
+	 */			
+	public float getRadian() {
+		return (float) Math.atan2(p1.getCurrY() - p2.getCurrY(), p1.getCurrX() - p2.getCurrX());
+	}
+	
+	
+	/**
+	 * The rotational value created by the positions of the two particles attached to this
+	 * SpringConstraint. You can use this property to in your own painting methods, along with the 
+	 * <code>center</code> property. 
+	 * 
+	 * @returns A Number representing the rotation of this SpringConstraint in degrees
+	 */					
+	public float getAngle() {
+		return getRadian() * MathUtil.ONE_EIGHTY_OVER_PI;
+	}
+	
+			
+	/**
+	 * The center position created by the relative positions of the two particles attached to this
+	 * SpringConstraint. You can use this property to in your own painting methods, along with the 
+	 * rotation property.
+	 * 
+	 * @returns A Vector representing the center of this SpringConstraint
+	 */			
+	public Vector2D getCenter() {
+		return getCenter(new Vector2D());
+	}
+	
+	
+	/**
+	 * Same as <code>getCenter()</code>, but stores the center in out and returns it.
+	 */
+	public Vector2D getCenter(Vector2D out) {
+		out.setTo(p1.getCurrX() + p2.getCurrX(), p1.getCurrY() + p2.getCurrY());
+		return out.divEquals(2);
+	}
+	
+	
+	/**
+	 * If the <code>collidable</code> property is true, you can set the scale of the collidible area
+	 * between the two attached particles. Valid values are from 0 to 1. If you set the value to 1, then
+	 * the collision area will extend all the way to the two attached particles. Setting the value lower
+	 * will result in an collision area that spans a percentage of that distance. Setting the value
+	 * higher will cause the collision rectangle to extend past the two end particles.
+	 */		 	
+	public void setRectScale(float s) {
+		if (getScp() == null) return;
+		getScp().setRectScale( s );
+	}
+	
+	
+	/**
+	 * @private
+	 */			
+	public float getRectScale() {
+		return getScp().getRectScale();
+	}
+	
+	
+	/**
+	 * Returns the length of the SpringConstraint, the distance between its two 
+	 * attached particles.
+	 */ 
+	public float getCurrLength() {
+		float dx = p1.getCurrX() - p2.getCurrX();
+		float dy = p1.getCurrY() - p2.getCurrY();
+		return (float)Math.sqrt(dx * dx + dy * dy);
+	}
+	
+	
+	/**
+	 * If the <code>collidable</code> property is true, you can set the height of the 
+	 * collidible rectangle between the two attached particles. Valid values are greater 
+	 * than 0. If you set the value to 10, then the collision rect will be 10 pixels high.
+	 * The height is perpendicular to the line connecting the two particles
+	 */	 
+	public float getRectHeight() {
+		return getScp().getRectHeight();
+	}
+	
+	
+	/**
+	 * @private
+	 */	
+	public void setRectHeight(float h) {
+		if (getScp() == null) return;
+		getScp().setRectHeight( h );
+	}			
+	
+		
+	/**
+	 * The <code>restLength</code> property sets the length of SpringConstraint. This value will be
+	 * the distance between the two particles unless their position is altered by external forces. 
+	 * The SpringConstraint will always try to keep the particles this distance apart. Values must 
+	 * be > 0.
+	 */			
+	public float getRestLength() {
+		return (_store == null) ? _restLength : _store.rest[_storeRow];
+	}
+	
+	
+	/**
+	 * @private
+	 */	
+	public void setRestLength(float r) {
+		if (r <= 0) throw new ArgumentError("restLength must be greater than 0");
+		if (_store == null) {
+			_restLength = r;
+		} else {
+			_store.rest[_storeRow] = r;
+		}
+	}
+	
+	
+	/**
+	 * The stiffness of the constraint, as for every constraint. While the 
+	 * SpringConstraint is packed it is kept in the row of the spring.
+	 */
+	public float getStiffness() {
+		return (_store == null) ? super.getStiffness() : _store.stiffness[_storeRow];
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setStiffness(float s) {
+		if (_store == null) {
+			super.setStiffness(s);
+		} else {
+			_store.stiffness[_storeRow] = s;
+		}
+	}
+	
+		
+	/**
+	 * Determines if the area between the two particles is tested for collision. If this value is on
+	 * you can set the <code>rectHeight</code> and <code>rectScale</code> properties 
+	 * to alter the dimensions of the collidable area.
+	 */			
+	public boolean getCollidable() {
+		return _collidable;
+	}
+	
+	
+	/**
+	 * For cases when the SpringConstraint is <code>collidable</code> and only one of the
+	 * two end particles are fixed. This value will dispose of collisions near the
+	 * fixed particle, to correct for situations where the collision could never be
+	 * resolved. Values must be between 0.0 and 1.0.
+	 */	
+	public float getFixedEndLimit() {
+		return getScp().getFixedEndLimit();
+	}	
+			
+			
+	/**
+	 * @private
+	 */	
+	public void setFixedEndLimit(float f) {
+		if (getScp() == null) return;
+		getScp().setFixedEndLimit(f);
+	}
+	
+				
+	/**
+	 *
+	 */		
+	public void setCollidable(boolean b, float rectHeight, 
+			float rectScale, boolean scaleToLength) {
+		
+		_collidable = b;
+		_scp = null;
+		if (getOwner() != null) {
+			getOwner().invalidateCollidableConstraints();
+			getOwner().invalidateBounds();
+		}
+		
+		if (_collidable) {
+			_scp = new SpringConstraintParticle(p1, p2, this, rectHeight, rectScale, scaleToLength);
+			_scp.setWorld(getWorld());
+			_scp.setCollisionCategory(_collisionCategory);
+			_scp.setCollisionMask(_collisionMask);
+			_scp.setCollisionGroup(_collisionGroup);
+		}
+	}
+	
+	public void setCollidable(boolean b, float rectHeight, 
+			float rectScale)
+	{
+		this.setCollidable(b, rectHeight, rectScale, false);
+	}
+	
+	
+	/**
+	 * The collision categories of the collidable area of this SpringConstraint, as a 
+	 * bit field. Works like the <code>collisionCategory</code> of a particle. The 
+	 * default is 1.
+	 */
+	public int getCollisionCategory() {
+		return _collisionCategory;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setCollisionCategory(int c) {
+		_collisionCategory = c;
+		if (_scp != null) _scp.setCollisionCategory(c);
+	}
+	
+	
+	/**
+	 * The collision categories the collidable area of this SpringConstraint collides
+	 * with, as a bit field. The default is 0xFFFFFFFF.
+	 */
+	public int getCollisionMask() {
+		return _collisionMask;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setCollisionMask(int m) {
+		_collisionMask = m;
+		if (_scp != null) _scp.setCollisionMask(m);
+	}
+	
+	
+	/**
+	 * The collision group of the collidable area of this SpringConstraint. Works like 
+	 * the <code>collisionGroup</code> of a particle. The default, 0, is no group.
+	 */
+	public int getCollisionGroup() {
+		return _collisionGroup;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	public void setCollisionGroup(int g) {
+		_collisionGroup = g;
+		if (_scp != null) _scp.setCollisionGroup(g);
+	}
+	
+	
+	/**
+	 * Returns true if the passed particle is one of the two particles attached to this SpringConstraint.
+	 */		
+	public boolean isConnectedTo(AbstractParticle p) {
+		return (p == p1 || p == p2);
+	}
+	
+	
+	/**
+	 * Returns true if both connected particle's <code>fixed</code> property is true.
+	 */
+	public boolean getFixed() {
+		return (p1.getFixed() && p2.getFixed());
+	}
+	
+	
+	/**
+	 * Sets up the visual representation of this SpringContraint. This method is called 
+	 * automatically when an instance of this SpringContraint's parent Group is added to 
+	 * the APEngine, when  this SpringContraint's Composite is added to a Group, or this 
+	 * SpringContraint is added to a Composite or Group.
+	 */			
+	public void init() {	
+		cleanup();
+		if (getCollidable()) {
+			getScp().init();
+		} else if (displayObject != null) {
+			initDisplay();
+		}
+		paint();
+	}
+	
+			
+	/**
+	 * The default painting method for this constraint. This method is called automatically
+	 * by the <code>APEngine.paint()</code> method. If you want to define your own custom painting
+	 * method, then create a subclass of this class and override <code>paint()</code>.
+	 */			
+	public void paint() {
+		
+		if (getCollidable()) {
+			getScp().paint();
+		} else if (displayObject != null) {
+			Vector2D c = getCenter();
+			getSprite().x = c.x; 
+			getSprite().y = c.y;
+			getSprite().rotation = getAngle();
+		} else {
+			getSprite().graphics.clear();
+			getSprite().graphics.lineStyle(lineThickness, lineColor, lineAlpha);
+			getSprite().graphics.moveTo(p1.getPx(), p1.getPy());
+			getSprite().graphics.lineTo(p2.getPx(), p2.getPy());	
+		}
+	}
+	
+	
+	/**
+	 * Assigns a DisplayObject to be used when painting this constraint.
+	 */ 
+	public void setDisplay(DisplayObject d, float offsetX, 
+			float offsetY, float rotation) {
+		
+		if (getCollidable()) {
+			getScp().setDisplay(d, offsetX, offsetY, rotation);
+		} else {
+			displayObject = d;
+			displayObjectRotation = rotation;
+			displayObjectOffset = new Vector2D(offsetX, offsetY);
+		}
+	}
+	
+	public void setDisplay(DisplayObject d)
+	{
+		this.setDisplay(d, 0, 0, 0);
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void initDisplay() {
+		if (getCollidable()) {
+			getScp().initDisplay();
+		} else {
+			displayObject.x = displayObjectOffset.x;
+			displayObject.y = displayObjectOffset.y;
+			displayObject.rotation = displayObjectRotation;
+			getSprite().addChild(displayObject);
+		}
+	}
+	
+						
+	/**
+	 * The vector from the second attached particle to the first.
+	 * 
+	 * @returns A new Vector representing the delta of this SpringConstraint
+	 */		
+	public Vector2D getDelta() {
+		return getDelta(new Vector2D());
+	}
+	
+	
+	/**
+	 * Same as <code>getDelta()</code>, but stores the delta in out and returns it.
+	 */
+	public Vector2D getDelta(Vector2D out) {
+		out.setTo(p1.getCurrX() - p2.getCurrX(), p1.getCurrY() - p2.getCurrY());
+		return out;
+	}		
+
+
+	/**
+	 * @private
+	 */
+	AbstractParticle getParticle1() {
+		return p1;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	AbstractParticle getParticle2() {
+		return p2;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void setWorld(PhysicsWorld w) {
+		super.setWorld(w);
+		if (_scp != null) _scp.setWorld(w);
+	}
+	
+	
+	/**
+	 * @private
+	 */		
+	SpringConstraintParticle getScp() {
+		return _scp;
+	}
+	
+	
+	/**
+	 * @private
+	 * The ConstraintStore holding the row of this SpringConstraint, or null.
+	 */
+	final ConstraintStore getStore() {
+		return _store;
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	final int getStoreRow() {
+		return _storeRow;
+	}
+	
+	
+	/**
+	 * @private
+	 * Moves the rest length and stiffness of this SpringConstraint into row of s, 
+	 * which holds them from then on, or back into its own fields if s is null.
+	 */
+	final void setStoreRow(ConstraintStore s, int row) {
+		float r = getRestLength();
+		float k = getStiffness();
+		
+		_store = s;
+		_storeRow = row;
+		
+		if (s == null) {
+			_restLength = r;
+			super.setStiffness(k);
+		} else {
+			s.rest[row] = r;
+			s.stiffness[row] = k;
+		}
+	}
+	
+	
+	/**
+	 * @private
+	 */			
+	void resolve() {
+		
+		if (p1.getFixed() && p2.getFixed()) return;
+		
+		float x1 = p1.getCurrX();
+		float y1 = p1.getCurrY();
+		float x2 = p2.getCurrX();
+		float y2 = p2.getCurrY();
+		float dx = x1 - x2;
+		float dy = y1 - y2;
+		
+		float deltaLength = (float)Math.sqrt(dx * dx + dy * dy);
+		float diff = (deltaLength - getRestLength()) / (deltaLength * (p1.getInvMass() + p2.getInvMass()));
+		float k = diff * getStiffness();
+		float dmdsx = dx * k;
+		float dmdsy = dy * k;
+		
+		float im1 = p1.getInvMass();
+		float im2 = p2.getInvMass();
+		p1.setCurr(x1 - dmdsx * im1, y1 - dmdsy * im1);
+		p2.setCurr(x2 + dmdsx * im2, y2 + dmdsy * im2);
+	}
+	
+	
+	/**
+	 * if the two particles are at the same location offset slightly
+	 */
+	private void checkParticlesLocation() {
+		float x2 = p2.getCurrX();
+		float y2 = p2.getCurrY();
+		if (p1.getCurrX() == x2 && p1.getCurrY() == y2) {
+			p2.setCurr((float)(x2 + 0.0001), y2);
+		}
+	}
+}
+
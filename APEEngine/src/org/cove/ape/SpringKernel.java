@@ -0,0 +1,51 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+/**
+ * Resolves a range of one batch of SpringBatches. The scalar kernel is always 
+ * available. A kernel using the incubating Vector API is loaded instead if it was 
+ * compiled into the classpath and the <code>jdk.incubator.vector</code> module is 
+ * enabled. Both give the same results.
+ */
+abstract class SpringKernel {
+	
+	/**
+	 * Returns the vector kernel if it can be loaded, and the scalar one otherwise.
+	 */
+	static SpringKernel load() {
+		try {
+			Class<?> c = Class.forName("org.cove.ape.VectorSpringKernel");
+			return (SpringKernel) c.getDeclaredConstructor().newInstance();
+		} catch (Throwable t) {
+			// not compiled in, or the module isn't enabled
+			return new ScalarSpringKernel();
+		}
+	}
+	
+	
+	/**
+	 * Resolves the springs lo to hi of b, which share no slot. Springs between two 
+	 * fixed particles, which have an inverse mass of 0, are skipped.
+	 */
+	abstract void solve(SpringBatches b, int lo, int hi);
+}
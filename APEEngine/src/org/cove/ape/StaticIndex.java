@@ -0,0 +1,279 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.List;
+
+/**
+ * A bounding volume hierarchy over the fixed, collidable particles of a collection.
+ * The tree is built in one pass by splitting the particles at the median of their
+ * centers along the longer axis, and is never modified afterwards -- when a fixed 
+ * particle changes, the owning collection builds a new one.
+ */
+final class StaticIndex {
+	
+	private static final int LEAF_SIZE = 4;
+	
+	private AbstractParticle[] items;
+	private int numItems;
+	
+	// bounds and centers of the items, in tree order
+	private float[] minX;
+	private float[] minY;
+	private float[] maxX;
+	private float[] maxY;
+	private float[] centers;
+	
+	// nodes. leaves have a count above 0 and hold the items start..start+count
+	private float[] nMinX;
+	private float[] nMinY;
+	private float[] nMaxX;
+	private float[] nMaxY;
+	private int[] start;
+	private int[] count;
+	private int[] left;
+	private int[] right;
+	private int numNodes;
+	
+	private int[] hits;
+	private int numHits;
+	private int[] stack;
+	private AABB bounds;
+	
+	
+	StaticIndex() {
+		items = new AbstractParticle[0];
+		minX = minY = maxX = maxY = centers = new float[0];
+		nMinX = nMinY = nMaxX = nMaxY = new float[0];
+		start = count = left = right = new int[0];
+		hits = new int[16];
+		stack = new int[64];
+		bounds = new AABB();
+	}
+	
+	
+	/**
+	 * Rebuilds the tree from the fixed, collidable particles in ps.
+	 */
+	void build(List<AbstractParticle> ps) {
+		
+		numItems = 0;
+		int len = ps.size();
+		for (int i = 0; i < len; i++) {
+			AbstractParticle p = ps.get(i);
+			if (p.getFixed() && p.getCollidable()) numItems++;
+		}
+		if (items.length < numItems) {
+			items = new AbstractParticle[numItems];
+			minX = new float[numItems];
+			minY = new float[numItems];
+			maxX = new float[numItems];
+			maxY = new float[numItems];
+			centers = new float[numItems];
+			int nodes = Math.max(1, 2 * numItems);
+			nMinX = new float[nodes];
+			nMinY = new float[nodes];
+			nMaxX = new float[nodes];
+			nMaxY = new float[nodes];
+			start = new int[nodes];
+			count = new int[nodes];
+			left = new int[nodes];
+			right = new int[nodes];
+		}
+		
+		int n = 0;
+		for (int i = 0; i < len; i++) {
+			AbstractParticle p = ps.get(i);
+			if (! (p.getFixed() && p.getCollidable())) continue;
+			p.getBounds(bounds);
+			items[n] = p;
+			minX[n] = bounds.minX;
+			minY[n] = bounds.minY;
+			maxX[n] = bounds.maxX;
+			maxY[n] = bounds.maxY;
+			n++;
+		}
+		for (int i = numItems; i < items.length; i++) items[i] = null;
+		
+		numNodes = 0;
+		if (numItems > 0) buildNode(0, numItems);
+	}
+	
+	
+	int size() {
+		return numItems;
+	}
+	
+	
+	/**
+	 * Finds the items whose bounds overlap the box. Returns the number of hits, which
+	 * are then read with <code>getHit()</code>.
+	 */
+	int query(float x0, float y0, float x1, float y1) {
+		
+		numHits = 0;
+		if (numNodes == 0) return 0;
+		
+		int top = 0;
+		stack[top++] = 0;
+		while (top > 0) {
+			int node = stack[--top];
+			if (nMinX[node] > x1 || nMaxX[node] < x0 || nMinY[node] > y1 || nMaxY[node] < y0) {
+				continue;
+			}
+			if (count[node] > 0) {
+				int end = start[node] + count[node];
+				for (int i = start[node]; i < end; i++) {
+					if (minX[i] <= x1 && x0 <= maxX[i] && minY[i] <= y1 && y0 <= maxY[i]) {
+						if (numHits == hits.length) {
+							int[] h = new int[hits.length * 2];
+							System.arraycopy(hits, 0, h, 0, numHits);
+							hits = h;
+						}
+						hits[numHits++] = i;
+					}
+				}
+			} else {
+				if (top + 2 > stack.length) {
+					int[] s = new int[stack.length * 2];
+					System.arraycopy(stack, 0, s, 0, top);
+					stack = s;
+				}
+				stack[top++] = right[node];
+				stack[top++] = left[node];
+			}
+		}
+		return numHits;
+	}
+	
+	
+	/**
+	 * Same as <code>query()</code>, using the bounds of a particle.
+	 */
+	int query(AbstractParticle p) {
+		p.getBounds(bounds);
+		return query(bounds.minX, bounds.minY, bounds.maxX, bounds.maxY);
+	}
+	
+	
+	AbstractParticle getHit(int k) {
+		return items[hits[k]];
+	}
+	
+	
+	private int buildNode(int lo, int hi) {
+		
+		int node = numNodes++;
+		
+		float x0 = Float.MAX_VALUE;
+		float y0 = Float.MAX_VALUE;
+		float x1 = -Float.MAX_VALUE;
+		float y1 = -Float.MAX_VALUE;
+		float cx0 = Float.MAX_VALUE;
+		float cy0 = Float.MAX_VALUE;
+		float cx1 = -Float.MAX_VALUE;
+		float cy1 = -Float.MAX_VALUE;
+		for (int i = lo; i < hi; i++) {
+			x0 = Math.min(x0, minX[i]);
+			y0 = Math.min(y0, minY[i]);
+			x1 = Math.max(x1, maxX[i]);
+			y1 = Math.max(y1, maxY[i]);
+			float cx = minX[i] + maxX[i];
+			float cy = minY[i] + maxY[i];
+			cx0 = Math.min(cx0, cx);
+			cy0 = Math.min(cy0, cy);
+			cx1 = Math.max(cx1, cx);
+			cy1 = Math.max(cy1, cy);
+		}
+		nMinX[node] = x0;
+		nMinY[node] = y0;
+		nMaxX[node] = x1;
+		nMaxY[node] = y1;
+		
+		if (hi - lo <= LEAF_SIZE) {
+			start[node] = lo;
+			count[node] = hi - lo;
+			return node;
+		}
+		
+		// split at the median center along the axis the centers are spread the most
+		boolean alongX = (cx1 - cx0) >= (cy1 - cy0);
+		for (int i = lo; i < hi; i++) {
+			centers[i] = alongX ? (minX[i] + maxX[i]) : (minY[i] + maxY[i]);
+		}
+		int mid = (lo + hi) >>> 1;
+		select(lo, hi - 1, mid);
+		
+		count[node] = 0;
+		left[node] = buildNode(lo, mid);
+		right[node] = buildNode(mid, hi);
+		return node;
+	}
+	
+	
+	/**
+	 * Partially sorts the items lo..hi by their center, so that the item at k is the
+	 * one a full sort would put there.
+	 */
+	private void select(int lo, int hi, int k) {
+		while (hi > lo) {
+			float pivot = centers[(lo + hi) >>> 1];
+			int i = lo;
+			int j = hi;
+			while (i <= j) {
+				while (centers[i] < pivot) i++;
+				while (centers[j] > pivot) j--;
+				if (i <= j) {
+					swap(i, j);
+					i++;
+					j--;
+				}
+			}
+			if (k <= j) {
+				hi = j;
+			} else if (k >= i) {
+				lo = i;
+			} else {
+				return;
+			}
+		}
+	}
+	
+	
+	private void swap(int a, int b) {
+		AbstractParticle p = items[a];
+		items[a] = items[b];
+		items[b] = p;
+		swap(minX, a, b);
+		swap(minY, a, b);
+		swap(maxX, a, b);
+		swap(maxY, a, b);
+		swap(centers, a, b);
+	}
+	
+	
+	private static void swap(float[] v, int a, int b) {
+		float t = v[a];
+		v[a] = v[b];
+		v[b] = t;
+	}
+}
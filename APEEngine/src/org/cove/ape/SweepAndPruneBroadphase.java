@@ -0,0 +1,261 @@
+/*
+Copyright (c) 2006, 2007 Alec Cove
+
+Permission is hereby granted, free of charge, to any person obtaining a copy of this 
+software and associated documentation files (the "Software"), to deal in the Software 
+without restriction, including without limitation the rights to use, copy, modify, 
+merge, publish, distribute, sublicense, and/or sell copies of the Software, and to 
+permit persons to whom the Software is furnished to do so, subject to the following 
+conditions:
+
+The above copyright notice and this permission notice shall be included in all copies 
+or substantial portions of the Software.
+
+THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR IMPLIED, 
+INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY, FITNESS FOR A 
+PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT 
+HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION OF 
+CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION WITH THE SOFTWARE 
+OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+*/
+
+package org.cove.ape;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A broadphase that keeps the bounding box endpoints of every particle sorted along
+ * the x and y axes. The order is kept from one collision check to the next and 
+ * repaired with an insertion sort, which is close to linear when particles move 
+ * little between steps. Candidate pairs are then found by sweeping the axis along
+ * which the particles are spread the most.
+ * 
+ * <p>
+ * The sorted axes are rebuilt from scratch whenever the set of particles changes.
+ * </p>
+ */
+public class SweepAndPruneBroadphase extends Broadphase {
+	
+	private static final int MAX_FLAG = 0x80000000;
+	private static final int PROXY_MASK = 0x7fffffff;
+	
+	private AbstractParticle[] known;
+	private int numProxies;
+	
+	private float[] minX;
+	private float[] minY;
+	private float[] maxX;
+	private float[] maxY;
+	
+	// sorted endpoints. the data holds the proxy index, with MAX_FLAG set for max endpoints
+	private float[] xValue;
+	private int[] xData;
+	private float[] yValue;
+	private int[] yData;
+	
+	// proxies whose interval is open during a sweep
+	private int[] active;
+	private int[] activeSlot;
+	private int numActive;
+	
+	private AABB bounds;
+	
+	
+	public SweepAndPruneBroadphase() {
+		known = new AbstractParticle[0];
+		numProxies = 0;
+		minX = minY = maxX = maxY = xValue = yValue = new float[0];
+		xData = yData = active = activeSlot = new int[0];
+		bounds = new AABB();
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	Broadphase copy() {
+		return new SweepAndPruneBroadphase();
+	}
+	
+	
+	/**
+	 * @private
+	 */
+	void findPairs(List<AbstractParticle> proxies, PairBuffer pairs) {
+		
+		int n = proxies.size();
+		boolean rebuild = n != numProxies;
+		if (rebuild) ensureCapacity(n);
+		
+		for (int i = 0; i < n; i++) {
+			AbstractParticle p = proxies.get(i);
+			if (known[i] != p) {
+				known[i] = p;
+				rebuild = true;
+			}
+			p.getBounds(bounds);
+			minX[i] = bounds.minX;
+			minY[i] = bounds.minY;
+			maxX[i] = bounds.maxX;
+			maxY[i] = bounds.maxY;
+		}
+		for (int i = n; i < numProxies; i++) known[i] = null;
+		numProxies = n;
+		
+		if (rebuild) {
+			sortAxis(xValue, xData, minX, maxX);
+			sortAxis(yValue, yData, minY, maxY);
+		} else {
+			refreshAxis(xValue, xData, minX, maxX);
+			refreshAxis(yValue, yData, minY, maxY);
+			insertionSort(xValue, xData);
+			insertionSort(yValue, yData);
+		}
+		
+		if (spread(minX, maxX) >= spread(minY, maxY)) {
+			sweep(xData, minY, maxY, pairs);
+		} else {
+			sweep(yData, minX, maxX, pairs);
+		}
+	}
+	
+	
+	/**
+	 * Walks the sorted endpoints of one axis. Every proxy whose min endpoint is reached
+	 * is paired with the proxies still open on that axis if they overlap on the other.
+	 */
+	private void sweep(int[] data, float[] otherMin, float[] otherMax, PairBuffer pairs) {
+		
+		numActive = 0;
+		int len = numProxies * 2;
+		for (int e = 0; e < len; e++) {
+			int d = data[e];
+			int i = d & PROXY_MASK;
+			
+			if ((d & MAX_FLAG) != 0) {
+				// close the interval of i
+				int slot = activeSlot[i];
+				int last = active[--numActive];
+				active[slot] = last;
+				activeSlot[last] = slot;
+				continue;
+			}
+			
+			float lo = otherMin[i];
+			float hi = otherMax[i];
+			for (int a = 0; a < numActive; a++) {
+				int j = active[a];
+				if (otherMin[j] <= hi && lo <= otherMax[j]) {
+					if (i < j) pairs.add(i, j);
+					else pairs.add(j, i);
+				}
+			}
+			activeSlot[i] = numActive;
+			active[numActive++] = i;
+		}
+	}
+	
+	
+	/**
+	 * Rebuilds the endpoints of an axis and sorts them from scratch.
+	 */
+	private void sortAxis(float[] value, int[] data, float[] min, float[] max) {
+		
+		int len = numProxies * 2;
+		long[] keys = new long[len];
+		for (int i = 0; i < numProxies; i++) {
+			keys[i * 2] = key(min[i], i);
+			keys[i * 2 + 1] = key(max[i], i | MAX_FLAG);
+		}
+		Arrays.sort(keys);
+		
+		for (int e = 0; e < len; e++) {
+			int d = (int) keys[e];
+			data[e] = d;
+			int i = d & PROXY_MASK;
+			value[e] = ((d & MAX_FLAG) != 0) ? max[i] : min[i];
+		}
+	}
+	
+	
+	/**
+	 * Orders by value, with min endpoints before max endpoints of equal value so 
+	 * touching boxes are reported as overlapping.
+	 */
+	private static long key(float v, int d) {
+		// map the float onto an int with the same order
+		int bits = Float.floatToIntBits(v);
+		if (bits < 0) bits ^= PROXY_MASK;
+		return ((long) bits << 32) | (d & 0xffffffffL);
+	}
+	
+	
+	private void refreshAxis(float[] value, int[] data, float[] min, float[] max) {
+		int len = numProxies * 2;
+		for (int e = 0; e < len; e++) {
+			int d = data[e];
+			int i = d & PROXY_MASK;
+			value[e] = ((d & MAX_FLAG) != 0) ? max[i] : min[i];
+		}
+	}
+	
+	
+	/**
+	 * Restores the order of an axis after the proxies moved. Coherent motion means
+	 * few endpoints have to travel far.
+	 */
+	private void insertionSort(float[] value, int[] data) {
+		int len = numProxies * 2;
+		for (int e = 1; e < len; e++) {
+			float v = value[e];
+			int d = data[e];
+			int k = e - 1;
+			while (k >= 0 && greater(value[k], data[k], v, d)) {
+				value[k + 1] = value[k];
+				data[k + 1] = data[k];
+				k--;
+			}
+			value[k + 1] = v;
+			data[k + 1] = d;
+		}
+	}
+	
+	
+	private static boolean greater(float va, int da, float vb, int db) {
+		if (va != vb) return va > vb;
+		// at equal values a max endpoint goes after a min endpoint
+		return (da & MAX_FLAG) != 0 && (db & MAX_FLAG) == 0;
+	}
+	
+	
+	private float spread(float[] min, float[] max) {
+		float sum = 0;
+		float sum2 = 0;
+		for (int i = 0; i < numProxies; i++) {
+			float c = (min[i] + max[i]) * 0.5f;
+			sum += c;
+			sum2 += c * c;
+		}
+		return sum2 - sum * sum / Math.max(numProxies, 1);
+	}
+	
+	
+	private void ensureCapacity(int n) {
+		if (known.length >= n) return;
+		int size = Math.max(n, known.length * 2);
+		AbstractParticle[] k = new AbstractParticle[size];
+		System.arraycopy(known, 0, k, 0, numProxies);
+		known = k;
+		minX = new float[size];
+		minY = new float[size];
+		maxX = new float[size];
+		maxY = new float[size];
+		xValue = new float[size * 2];
+		xData = new int[size * 2];
+		yValue = new float[size * 2];
+		yData = new int[size * 2];
+		active = new int[size];
+		activeSlot = new int[size];
+	}
+}
@@ -1,8 +1,8 @@
-package org.cove.ape.util;
-
-public class ArgumentError extends Error {
-	public ArgumentError(String msg)
-	{
-		super(msg);
-	}
-}
+package org.cove.ape.util;
+
+public class ArgumentError extends Error {
+	public ArgumentError(String msg)
+	{
+		super(msg);
+	}
+}